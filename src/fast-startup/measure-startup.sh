@@ -0,0 +1,36 @@
+#!/bin/sh
+# Time from the JVM start until the application is ready (after the startup warm-up), with and without
+# the optimizations of the fast-startup Maven profile. Every run starts on the embedded H2 database and exits when ready.
+# Build first: mvn -Pfast-startup package
+# Usage: src/fast-startup/measure-startup.sh [runs per variant, default 5]
+set -e
+cd "$(dirname "$0")/../../target/fast-startup"
+RUNS=${1:-5}
+JAR=$(ls ./*-plain.jar)
+APP_ARGS="--spring.profiles.active=h2 --server.port=0 --startup.exit-when-ready=true --logging.level.root=WARN \
+--logging.level.com.example.asteriotest.config.StartupReadyListener=INFO"
+
+# prints the ready time of every run in ms, then min and median
+measure() {
+    name=$1
+    shift
+    times=""
+    for i in $(seq 1 "$RUNS"); do
+        ms=$(java "$@" -jar "$JAR" $APP_ARGS 2>&1 | sed -n 's/.*Application ready in \([0-9]*\) ms.*/\1/p')
+        if [ -z "$ms" ]; then
+            echo "$name: the application did not start" >&2
+            exit 1
+        fi
+        times="$times $ms"
+    done
+    sorted=$(echo $times | tr ' ' '\n' | sort -n)
+    min=$(echo "$sorted" | head -n 1)
+    median=$(echo "$sorted" | sed -n "$(( (RUNS + 1) / 2 ))p")
+    printf '%-10s min %6s ms  median %6s ms  runs:%s\n' "$name" "$min" "$median" "$times"
+}
+
+echo "java $(java -version 2>&1 | head -n 1), $(nproc) CPUs, $RUNS runs per variant"
+measure "default"
+measure "aot" -Dspring.aot.enabled=true
+measure "cds" -XX:SharedArchiveFile=application.jsa -Xlog:cds=error
+measure "aot+cds" -Dspring.aot.enabled=true -XX:SharedArchiveFile=application.jsa -Xlog:cds=error
@@ -0,0 +1,163 @@
+package com.example.asteriotest.benchmark;
+
+import com.example.asteriotest.model.Banner;
+import com.example.asteriotest.model.DTO.BannerCandidate;
+import com.example.asteriotest.model.RequestJournal;
+import com.example.asteriotest.repository.BannerRepository;
+import com.example.asteriotest.repository.BidCandidateRepository;
+import com.example.asteriotest.repository.RequestJournalRepository;
+import com.example.asteriotest.services.BannerCatalog;
+import com.example.asteriotest.services.FrequencyCapEngine;
+import com.example.asteriotest.services.IpAddresses;
+import com.example.asteriotest.services.UserAgentDictionary;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The steps of BannerManagerService.bid() that choose the banner, measured one by one:
+ * candidate lookup, sorting by price and the "already shown" check.
+ * The "already shown" checks draw the user at random out of USERS, independently of the request.
+ * Every other user has today's impressions in the journal (and, seeded from it, in the in-memory cap),
+ * so the journal query, the anti-join and the in-memory check all see the same, non-empty history.
+ * SampleTime mode is used to see the percentiles, not only the average.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BidSelectionBenchmark {
+    private static final int REQUESTS = 256;
+    private static final int USERS = 10_000;
+    private static final int SEEDED_REQUESTS_PER_USER = 10;
+    private static final int SEEDED_SHOWN_PER_REQUEST = 2;
+
+    @Param({"1000", "10000"})
+    public int catalogSize;
+
+    @Param({"1", "3"})
+    public int categoriesPerRequest;
+
+    @Param({"10", "100"})
+    public int bannersPerCategory;
+
+    private ConfigurableApplicationContext context;
+    private BannerRepository bannerRepo;
+    private BidCandidateRepository candidateRepo;
+    private RequestJournalRepository journalRepo;
+    private BannerCatalog catalog;
+    private FrequencyCapEngine frequencyCap;
+    private Integer agentId;
+
+    private List<List<String>> requests;
+    private List<List<Banner>> loadedCandidates;
+    private LocalDateTime startOfDay;
+    private LocalDateTime endOfDay;
+    private int next;
+    private final Random users = new Random(11);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = EmbeddedApplication.start("selection");
+        bannerRepo = context.getBean(BannerRepository.class);
+        candidateRepo = context.getBean(BidCandidateRepository.class);
+        journalRepo = context.getBean(RequestJournalRepository.class);
+        catalog = context.getBean(BannerCatalog.class);
+        frequencyCap = context.getBean(FrequencyCapEngine.class);
+        agentId = context.getBean(UserAgentDictionary.class).idOf("bench-agent");
+
+        List<String> requestIds = EmbeddedApplication.seedCatalog(context, catalogSize, bannersPerCategory);
+        requests = EmbeddedApplication.randomRequests(requestIds, categoriesPerRequest, REQUESTS);
+
+        List<byte[]> seededUsers = new ArrayList<>(USERS / 2);
+        for (int user = 0; user < USERS; user += 2) {
+            seededUsers.add(IpAddresses.toBytes(ipOf(user)));
+        }
+        EmbeddedApplication.seedJournal(context, requests, seededUsers, "bench-agent",
+                SEEDED_REQUESTS_PER_USER, SEEDED_SHOWN_PER_REQUEST);
+        frequencyCap.seedFromJournal();
+
+        loadedCandidates = new ArrayList<>(REQUESTS);
+        for (List<String> request : requests) {
+            loadedCandidates.add(bannerRepo.findAllByCategories_requestIdIn(request).orElse(List.of()));
+        }
+
+        LocalDate today = LocalDate.now();
+        startOfDay = today.atStartOfDay();
+        endOfDay = today.atTime(23, 59, 59);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private int nextIndex() {
+        next = (next + 1) % REQUESTS;
+        return next;
+    }
+
+    private int nextUser() {
+        return users.nextInt(USERS);
+    }
+
+    private String ipOf(int user) {
+        return "10.0." + (user >> 8) + "." + (user & 0xFF);
+    }
+
+    /** Candidate lookup as it was: a join query that loads Banner entities */
+    @Benchmark
+    public Optional<List<Banner>> candidatesFromRepository() {
+        return bannerRepo.findAllByCategories_requestIdIn(requests.get(nextIndex()));
+    }
+
+    /** Candidate lookup from the in-memory catalog, already sorted by price */
+    @Benchmark
+    public BannerCandidate[] candidatesFromCatalog() {
+        return catalog.candidates(requests.get(nextIndex()));
+    }
+
+    /** Sorting loaded entities by price, as bid() did before the catalog */
+    @Benchmark
+    public List<Banner> sortByPrice() {
+        List<Banner> banners = new ArrayList<>(loadedCandidates.get(nextIndex()));
+        Collections.sort(banners, Comparator.comparing(Banner::getPrice));
+        return banners;
+    }
+
+    /** "Already shown" check against the in-memory frequency cap, one candidate */
+    @Benchmark
+    public boolean frequencyCapInMemory() {
+        int index = nextIndex();
+        BannerCandidate[] candidates = catalog.candidates(requests.get(index));
+        if (candidates.length == 0) {
+            return false;
+        }
+        return frequencyCap.tryRecord(ipOf(nextUser()), "bench-agent", candidates[0].getId());
+    }
+
+    /** "Already shown" check as it was: one journal query per candidate */
+    @Benchmark
+    public Optional<RequestJournal> frequencyCapJournalQuery() {
+        int index = nextIndex();
+        List<Banner> candidates = loadedCandidates.get(index);
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        }
+        return journalRepo.findByBannerAndIpAndUserAgentIdAndRequestTimeBetween(
+                candidates.get(0), IpAddresses.toBytes(ipOf(nextUser())), agentId, startOfDay, endOfDay);
+    }
+
+    /** Lookup and check in one anti-join query on the bid_candidate table (the DATABASE bid strategy) */
+    @Benchmark
+    public BannerCandidate unseenFromDatabase() {
+        int index = nextIndex();
+        return candidateRepo.findTopUnseen(requests.get(index), IpAddresses.toBytes(ipOf(nextUser())), agentId,
+                startOfDay, endOfDay);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.asteriotest.benchmark;
+
+import com.example.asteriotest.AsterioTestApplication;
+import com.example.asteriotest.model.Banner;
+import com.example.asteriotest.model.Category;
+import com.example.asteriotest.model.DTO.BannerCandidate;
+import com.example.asteriotest.model.RequestJournal;
+import com.example.asteriotest.repository.BannerRepository;
+import com.example.asteriotest.repository.BidCandidateRepository;
+import com.example.asteriotest.repository.CategoriesRepository;
+import com.example.asteriotest.repository.RequestJournalRepository;
+import com.example.asteriotest.services.BannerCatalog;
+import com.example.asteriotest.services.UserAgentDictionary;
+import jakarta.persistence.EntityManager;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Starts the application against an embedded H2 database in MySQL mode
+ * and fills it with a synthetic catalog.
+ * */
+final class EmbeddedApplication {
+
+    private EmbeddedApplication() {}
+
+    static ConfigurableApplicationContext start(String databaseName, String... extraArgs) {
+        // passed as command line arguments to override application.properties
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.profiles.active=h2", // see application-h2.properties
+                "--spring.datasource.url=jdbc:h2:mem:" + databaseName + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        args.addAll(List.of(extraArgs));
+        return new SpringApplicationBuilder(AsterioTestApplication.class).run(args.toArray(String[]::new));
+    }
+
+    /**
+     * Creates categories "cat-0", "cat-1", ... with the given number of banners each.
+     * Every banner belongs to one category, prices are random but reproducible.
+     * @return requestIds of the created categories
+     * */
+    static List<String> seedCatalog(ConfigurableApplicationContext context, int catalogSize, int bannersPerCategory) {
+        CategoriesRepository categoriesRepo = context.getBean(CategoriesRepository.class);
+        BannerRepository bannerRepo = context.getBean(BannerRepository.class);
+
+        int categoriesCount = Math.max(1, catalogSize / bannersPerCategory);
+        List<Category> categories = new ArrayList<>(categoriesCount);
+        for (int i = 0; i < categoriesCount; i++) {
+            Category category = new Category();
+            category.setName("category " + i);
+            category.setRequestId("cat-" + i);
+            categories.add(category);
+        }
+        categories = categoriesRepo.saveAll(categories);
+
+        Random random = new Random(42);
+        List<Banner> banners = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            Banner banner = new Banner("banner " + i, 1 + random.nextInt(10_000), Set.of(categories.get(i % categoriesCount)));
+            banner.setText("text of banner " + i);
+            banners.add(banner);
+        }
+        bannerRepo.saveAll(banners);
+
+        context.getBean(BidCandidateRepository.class).rebuild(); // the banners were saved past the manager services
+        context.getBean(BannerCatalog.class).rebuild();
+        return categories.stream().map(Category::getRequestId).toList();
+    }
+
+    /**
+     * Reproducible set of bid requests, each of them asks for the given number of random categories.
+     * */
+    static List<List<String>> randomRequests(List<String> requestIds, int categoriesPerRequest, int count) {
+        Random random = new Random(7);
+        List<List<String>> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<String> request = new ArrayList<>(categoriesPerRequest);
+            for (int j = 0; j < categoriesPerRequest; j++) {
+                request.add(requestIds.get(random.nextInt(requestIds.size())));
+            }
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    /**
+     * Today's impressions of the given users: every user has seen the best "shownPerRequest" candidates
+     * of "requestsPerUser" random requests, so the "already shown" checks find real journal rows.
+     * The records are saved past the JournalWriter, in transactions of 1000.
+     * @return number of saved records
+     * */
+    static int seedJournal(ConfigurableApplicationContext context, List<List<String>> requests, List<byte[]> users,
+                           String userAgent, int requestsPerUser, int shownPerRequest) {
+        BannerCatalog catalog = context.getBean(BannerCatalog.class);
+        BannerRepository bannerRepo = context.getBean(BannerRepository.class);
+        RequestJournalRepository journalRepo = context.getBean(RequestJournalRepository.class);
+        UserAgentDictionary userAgents = context.getBean(UserAgentDictionary.class);
+        EntityManager entityManager = context.getBean(EntityManager.class);
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        Random random = new Random(13);
+        LocalDateTime now = LocalDateTime.now();
+        List<RequestJournal> records = new ArrayList<>(1000);
+        int saved = 0;
+        for (byte[] ip : users) {
+            Set<Long> shown = new HashSet<>(); // one impression per banner, as with the default cap
+            for (int i = 0; i < requestsPerUser; i++) {
+                BannerCandidate[] candidates = catalog.candidates(requests.get(random.nextInt(requests.size())));
+                for (int j = 0; j < Math.min(shownPerRequest, candidates.length); j++) {
+                    if (!shown.add(candidates[j].getId())) {
+                        continue;
+                    }
+                    records.add(new RequestJournal(ip, userAgent, now,
+                            bannerRepo.getReferenceById(candidates[j].getId()), candidates[j].getPrice()));
+                }
+            }
+            if (records.size() >= 1000) {
+                saved += saveJournal(transaction, entityManager, journalRepo, userAgents, records);
+            }
+        }
+        return saved + saveJournal(transaction, entityManager, journalRepo, userAgents, records);
+    }
+
+    private static int saveJournal(TransactionTemplate transaction, EntityManager entityManager,
+                                   RequestJournalRepository journalRepo, UserAgentDictionary userAgents,
+                                   List<RequestJournal> records) {
+        int count = records.size();
+        transaction.executeWithoutResult(status -> {
+            userAgents.assignIds(records);
+            journalRepo.saveAll(records);
+            entityManager.flush();
+            entityManager.clear();
+        });
+        records.clear();
+        return count;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.asteriotest.benchmark;
+
+import com.example.asteriotest.model.Banner;
+import com.example.asteriotest.model.RequestJournal;
+import com.example.asteriotest.repository.BannerRepository;
+import com.example.asteriotest.repository.RequestJournalRepository;
+import com.example.asteriotest.services.IpAddresses;
+import com.example.asteriotest.services.JournalWriter;
+import com.example.asteriotest.services.UserAgentDictionary;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the request journal record of one bid: building the record,
+ * saving it in the request thread (as bid() did) and handing it to the background writer.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JournalBenchmark {
+    private ConfigurableApplicationContext context;
+    private RequestJournalRepository journalRepo;
+    private JournalWriter journalWriter;
+    private UserAgentDictionary userAgents;
+    private Banner banner;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = EmbeddedApplication.start("journal");
+        journalRepo = context.getBean(RequestJournalRepository.class);
+        journalWriter = context.getBean(JournalWriter.class);
+        userAgents = context.getBean(UserAgentDictionary.class);
+
+        EmbeddedApplication.seedCatalog(context, 10, 10);
+        BannerRepository bannerRepo = context.getBean(BannerRepository.class);
+        banner = bannerRepo.findAll().get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private RequestJournal newRecord() {
+        return new RequestJournal(IpAddresses.toBytes("10.0.0.1"), "Mozilla/5.0 (X11; Linux x86_64) bench-agent",
+                LocalDateTime.now(), banner, banner.getPrice());
+    }
+
+    @Benchmark
+    public RequestJournal construct() {
+        return newRecord();
+    }
+
+    @Benchmark
+    public RequestJournal saveSynchronously() {
+        RequestJournal record = newRecord();
+        userAgents.assignIds(List.of(record));
+        return journalRepo.save(record);
+    }
+
+    @Benchmark
+    public int writeInBackground() {
+        journalWriter.write(newRecord());
+        return journalWriter.pending();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.asteriotest.benchmark;
+
+import com.example.asteriotest.config.VirtualThreads;
+import com.example.asteriotest.repository.BidCandidateRepository;
+import com.example.asteriotest.services.DatabaseAccessLimiter;
+import com.example.asteriotest.services.IpAddresses;
+import com.example.asteriotest.services.UserAgentDictionary;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Load comparison of the serving modes at the same number of database connections.
+ * One operation is a burst of "inFlight" bid requests, each of them runs the DATABASE strategy query
+ * through DatabaseAccessLimiter and then blocks for "networkMs" (the client and network part of a request).
+ * PLATFORM runs the burst on a pool of 200 threads (the Tomcat default), VIRTUAL on a virtual thread per request.
+ * The VIRTUAL mode needs Java 21, on older JVMs its trial fails with an explanation.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ServingModeBenchmark {
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public String mode;
+
+    @Param({"20"})
+    public int connections;
+
+    @Param({"200", "2000"})
+    public int inFlight;
+
+    @Param({"5"})
+    public int networkMs;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService executor;
+    private BidCandidateRepository candidateRepo;
+    private DatabaseAccessLimiter databaseLimiter;
+    private Integer agentId;
+    private List<List<String>> requests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = "VIRTUAL".equals(mode)
+                ? VirtualThreads.newPerTaskExecutor().orElseThrow(() -> new IllegalStateException("Virtual threads require Java 21"))
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+
+        context = EmbeddedApplication.start("serving",
+                "--spring.datasource.hikari.maximum-pool-size=" + connections,
+                "--bid.db.max-concurrency=" + connections);
+        candidateRepo = context.getBean(BidCandidateRepository.class);
+        databaseLimiter = context.getBean(DatabaseAccessLimiter.class);
+        agentId = context.getBean(UserAgentDictionary.class).idOf("bench-agent");
+        List<String> requestIds = EmbeddedApplication.seedCatalog(context, 200, 10);
+        requests = EmbeddedApplication.randomRequests(requestIds, 3, 256);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public int burst() throws InterruptedException, ExecutionException {
+        LocalDate today = LocalDate.now();
+        LocalDateTime startOfDay = today.atStartOfDay();
+        LocalDateTime endOfDay = today.atTime(23, 59, 59);
+
+        Future<?>[] futures = new Future<?>[inFlight];
+        for (int i = 0; i < inFlight; i++) {
+            List<String> request = requests.get(i % requests.size());
+            byte[] ip = IpAddresses.toBytes("10.0." + (i >> 8) + "." + (i & 0xFF));
+            futures[i] = executor.submit(() -> {
+                databaseLimiter.call(() -> candidateRepo.findTopUnseen(request, ip, agentId,
+                        startOfDay, endOfDay));
+                try {
+                    Thread.sleep(networkMs);
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return inFlight;
+    }
+}
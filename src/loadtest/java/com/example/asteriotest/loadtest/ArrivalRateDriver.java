@@ -0,0 +1,140 @@
+package com.example.asteriotest.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load: requests are started at a constant rate whether the previous ones have been answered or not,
+ * as independent users would do. A slow server therefore gets a growing number of requests in flight
+ * instead of a lower request rate.
+ * The latency of a request is measured from the moment it should have been started, not from the moment
+ * it was actually sent, so a stall of the server or of the generator itself shows up in the percentiles
+ * (no coordinated omission).
+ * The users are IP / User-Agent pairs, the IP is sent in X-Forwarded-For.
+ * */
+final class ArrivalRateDriver {
+    private static final int REQUEST_POOL = 1 << 16;
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpRequest[] requests = new HttpRequest[REQUEST_POOL];
+    private final HttpClient client;
+    private final ExecutorService clientExecutor;
+    private final int maxInFlight;
+
+    private final Recorder latency = new Recorder(HIGHEST_LATENCY_MICROS, 3);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder served = new LongAdder();
+    private final LongAdder noContent = new LongAdder();
+    private final LongAdder otherStatus = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    ArrivalRateDriver(int port, SyntheticCatalog catalog, LoadTestConfig config) {
+        Random random = new Random(config.getInt("seed") + 1);
+        int users = config.getInt("users");
+        int userAgents = config.getInt("user-agents");
+        int categoriesPerRequest = config.getInt("categories-per-request");
+        // built in advance, so the generator thread only schedules
+        for (int i = 0; i < REQUEST_POOL; i++) {
+            int user = random.nextInt(users);
+            StringBuilder uri = new StringBuilder("http://localhost:").append(port).append("/bid?");
+            List<String> categories = catalog.randomRequest(random, categoriesPerRequest);
+            for (int j = 0; j < categories.size(); j++) {
+                uri.append(j == 0 ? "cat=" : "&cat=").append(URLEncoder.encode(categories.get(j), StandardCharsets.UTF_8));
+            }
+            requests[i] = HttpRequest.newBuilder(URI.create(uri.toString()))
+                    .header("X-Forwarded-For", "10." + (user >> 16 & 0xFF) + "." + (user >> 8 & 0xFF) + "." + (user & 0xFF))
+                    .header("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) LoadTest/" + (user % userAgents))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+        }
+        this.maxInFlight = config.getInt("max-in-flight");
+        this.clientExecutor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(clientExecutor)
+                .build();
+    }
+
+    /**
+     * Sends requests at the rate for warmup + duration seconds, the outcomes of the requests scheduled
+     * within the last "duration" seconds are counted. Returns once those requests are answered or timed out.
+     * */
+    Result run(double rate, int warmupSeconds, int durationSeconds) throws InterruptedException {
+        double nanosPerRequest = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        long scheduled = 0;
+        for (long i = 0; ; i++) {
+            long intendedStart = start + (long) (i * nanosPerRequest);
+            if (intendedStart >= end) {
+                break;
+            }
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = intendedStart >= measureFrom; // the warm-up requests are sent but not counted
+            if (measured) {
+                scheduled++;
+            }
+            if (inFlight.get() >= maxInFlight) {
+                if (measured) {
+                    skipped.increment();
+                }
+                continue;
+            }
+            inFlight.incrementAndGet();
+            client.sendAsync(requests[(int) (i % REQUEST_POOL)], HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, exc) -> completed(intendedStart, measured, response, exc));
+        }
+
+        long drainDeadline = System.nanoTime() + REQUEST_TIMEOUT.toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        clientExecutor.shutdownNow();
+        return new Result(scheduled, durationSeconds, latency.getIntervalHistogram(),
+                served.sum(), noContent.sum(), otherStatus.sum(), failed.sum(), skipped.sum());
+    }
+
+    private void completed(long intendedStart, boolean measured, HttpResponse<Void> response, Throwable exc) {
+        inFlight.decrementAndGet();
+        if (!measured) {
+            return;
+        }
+        if (exc != null) {
+            failed.increment();
+            return;
+        }
+        latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart), HIGHEST_LATENCY_MICROS));
+        switch (response.statusCode()) {
+            case 200 -> served.increment();
+            case 204 -> noContent.increment();
+            default -> otherStatus.increment();
+        }
+    }
+
+    record Result(long scheduled, int durationSeconds, Histogram latencyMicros,
+                  long served, long noContent, long otherStatus, long failed, long skipped) {
+    }
+}
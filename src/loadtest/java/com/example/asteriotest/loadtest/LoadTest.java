@@ -0,0 +1,110 @@
+package com.example.asteriotest.loadtest;
+
+import com.example.asteriotest.AsterioTestApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * End-to-end load test of /bid: starts the application on an embedded H2 database (see application-h2.properties),
+ * seeds a synthetic catalog (SyntheticCatalog), sends requests at a constant rate (ArrivalRateDriver)
+ * and writes throughput, latency percentiles and the served/204 ratio as JSON, so the files of two builds can be diffed.
+ * The generator runs in the same JVM as the application, compare results of the same machine only.
+ * Run: mvn -Ploadtest compile exec:exec -Dloadtest.args="rate=2000 duration=60 --bid.selection-strategy=DATABASE"
+ * */
+public final class LoadTest {
+    private static final Logger logger = Logger.getLogger(LoadTest.class.getName());
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+
+        List<String> applicationArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.profiles.active=h2",
+                // the simulated client IPs come in X-Forwarded-For, the remote address of every request is localhost
+                "--server.forward-headers-strategy=native",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--logging.level.com.example.asteriotest.loadtest=INFO"));
+        applicationArgs.addAll(config.getApplicationArgs());
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(AsterioTestApplication.class)
+                .run(applicationArgs.toArray(String[]::new))) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+
+            long seedStart = System.nanoTime();
+            SyntheticCatalog catalog = new SyntheticCatalog();
+            catalog.seed(context, config);
+            logger.info("Catalog of " + config.getInt("banners") + " banners seeded in "
+                    + (System.nanoTime() - seedStart) / 1_000_000 + " ms");
+
+            ArrivalRateDriver driver = new ArrivalRateDriver(port, catalog, config);
+            logger.info("Sending " + config.getDouble("rate") + " requests/s: " + config.getInt("warmup") + " s warm-up, "
+                    + config.getInt("duration") + " s measured");
+            ArrivalRateDriver.Result result = driver.run(config.getDouble("rate"), config.getInt("warmup"), config.getInt("duration"));
+
+            Map<String, Object> report = report(config, result);
+            Path output = config.getPath("output");
+            write(report, output);
+            logger.info("Load test result written to " + output.toAbsolutePath() + ": " + report);
+        }
+    }
+
+    private static Map<String, Object> report(LoadTestConfig config, ArrivalRateDriver.Result result) {
+        long answered = result.served() + result.noContent() + result.otherStatus();
+        Histogram latency = result.latencyMicros();
+
+        Map<String, Object> latencyMillis = new LinkedHashMap<>();
+        latencyMillis.put("p50", millis(latency.getValueAtPercentile(50)));
+        latencyMillis.put("p90", millis(latency.getValueAtPercentile(90)));
+        latencyMillis.put("p99", millis(latency.getValueAtPercentile(99)));
+        latencyMillis.put("p999", millis(latency.getValueAtPercentile(99.9)));
+        latencyMillis.put("max", millis(latency.getMaxValue()));
+        latencyMillis.put("mean", millis(latency.getMean()));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", config.describe());
+        report.put("java", System.getProperty("java.version"));
+        report.put("cpus", Runtime.getRuntime().availableProcessors());
+        report.put("scheduled", result.scheduled());
+        report.put("served", result.served());
+        report.put("noContent", result.noContent());
+        report.put("otherStatus", result.otherStatus());
+        report.put("failed", result.failed());
+        report.put("skipped", result.skipped());
+        report.put("throughputPerSecond", round((double) answered / result.durationSeconds()));
+        long bids = result.served() + result.noContent();
+        report.put("servedRatio", bids == 0 ? 0 : round((double) result.served() / bids));
+        report.put("latencyMillis", latencyMillis);
+        return report;
+    }
+
+    private static void write(Map<String, Object> report, Path output) throws IOException {
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), report);
+    }
+
+    private static double millis(double micros) {
+        return round(micros / 1000);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.asteriotest.loadtest;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Options of the load test, given as key=value arguments. Arguments starting with "--" are passed
+ * to the application, e.g. --bid.selection-strategy=DATABASE.
+ * */
+final class LoadTestConfig {
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("categories", "200");            // categories in the catalog
+        DEFAULTS.put("banners", "20000");             // banners in the catalog
+        DEFAULTS.put("categories-per-banner", "1");   // distinct random categories of every banner
+        DEFAULTS.put("max-price", "10000");
+        DEFAULTS.put("price-skew", "1");              // 1 - uniform prices, above 1 - many cheap banners and few expensive ones
+        DEFAULTS.put("category-skew", "1");           // Zipf exponent of the category popularity in the requests, 0 - uniform
+        DEFAULTS.put("categories-per-request", "2");
+        DEFAULTS.put("users", "10000");               // simulated IP / User-Agent pairs
+        DEFAULTS.put("user-agents", "50");            // distinct User-Agent strings among the users
+        DEFAULTS.put("rate", "1000");                 // requests per second, independent of the response times
+        DEFAULTS.put("warmup", "10");                 // seconds at the same rate, not measured
+        DEFAULTS.put("duration", "30");               // measured seconds
+        DEFAULTS.put("max-in-flight", "5000");        // requests over the limit are not sent and counted as skipped
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("output", "target/loadtest/result.json");
+    }
+
+    private final Map<String, String> values;
+    private final List<String> applicationArgs;
+
+    private LoadTestConfig(Map<String, String> values, List<String> applicationArgs) {
+        this.values = values;
+        this.applicationArgs = applicationArgs;
+    }
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                applicationArgs.add(arg);
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !DEFAULTS.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Unknown option \"" + arg + "\", the options are: " + DEFAULTS.keySet());
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return new LoadTestConfig(values, applicationArgs);
+    }
+
+    int getInt(String key) {
+        return Integer.parseInt(values.get(key));
+    }
+
+    double getDouble(String key) {
+        return Double.parseDouble(values.get(key));
+    }
+
+    Path getPath(String key) {
+        return Path.of(values.get(key));
+    }
+
+    List<String> getApplicationArgs() {
+        return applicationArgs;
+    }
+
+    /**
+     * All options including the defaults, for the report.
+     * */
+    Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>(values);
+        description.remove("output");
+        description.put("application-args", applicationArgs);
+        return description;
+    }
+}
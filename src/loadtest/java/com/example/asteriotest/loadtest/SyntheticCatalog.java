@@ -0,0 +1,90 @@
+package com.example.asteriotest.loadtest;
+
+import com.example.asteriotest.model.Banner;
+import com.example.asteriotest.model.Category;
+import com.example.asteriotest.repository.BannerRepository;
+import com.example.asteriotest.repository.BidCandidateRepository;
+import com.example.asteriotest.repository.CategoriesRepository;
+import com.example.asteriotest.services.BannerCatalog;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.*;
+
+/**
+ * Reproducible catalog and bid requests of the load test.
+ * Banner prices are 1 + (max-price - 1) * u^price-skew for a uniform u, so a skew above 1 makes most banners cheap.
+ * The categories of the requests follow a Zipf distribution: the category with rank k is asked for
+ * with a weight of 1 / k^category-skew.
+ * */
+final class SyntheticCatalog {
+    private static final int SAVE_CHUNK = 5000;
+
+    private final List<String> requestIds = new ArrayList<>();
+    private double[] cumulativeWeights;
+
+    /**
+     * Saves the catalog through the repositories (faster than the API), then builds the bid_candidate table
+     * and the in-memory catalog, as the manager services would.
+     * */
+    void seed(ConfigurableApplicationContext context, LoadTestConfig config) {
+        CategoriesRepository categoriesRepo = context.getBean(CategoriesRepository.class);
+        BannerRepository bannerRepo = context.getBean(BannerRepository.class);
+        Random random = new Random(config.getInt("seed"));
+
+        int categoriesCount = config.getInt("categories");
+        List<Category> categories = new ArrayList<>(categoriesCount);
+        for (int i = 0; i < categoriesCount; i++) {
+            Category category = new Category();
+            category.setName("category " + i);
+            category.setRequestId("cat-" + i);
+            categories.add(category);
+        }
+        categories = categoriesRepo.saveAll(categories);
+        categories.forEach(category -> requestIds.add(category.getRequestId()));
+
+        int bannersCount = config.getInt("banners");
+        int perBanner = Math.min(config.getInt("categories-per-banner"), categoriesCount);
+        int maxPrice = config.getInt("max-price");
+        double priceSkew = config.getDouble("price-skew");
+        List<Banner> chunk = new ArrayList<>(SAVE_CHUNK);
+        for (int i = 0; i < bannersCount; i++) {
+            Set<Category> bannerCategories = new HashSet<>();
+            while (bannerCategories.size() < perBanner) {
+                bannerCategories.add(categories.get(random.nextInt(categoriesCount)));
+            }
+            int price = 1 + (int) ((maxPrice - 1) * Math.pow(random.nextDouble(), priceSkew));
+            Banner banner = new Banner("banner " + i, price, bannerCategories);
+            banner.setText("text of banner " + i);
+            chunk.add(banner);
+            if (chunk.size() == SAVE_CHUNK || i == bannersCount - 1) {
+                bannerRepo.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+
+        context.getBean(BidCandidateRepository.class).rebuild();
+        context.getBean(BannerCatalog.class).rebuild();
+
+        double categorySkew = config.getDouble("category-skew");
+        cumulativeWeights = new double[categoriesCount];
+        double sum = 0;
+        for (int rank = 1; rank <= categoriesCount; rank++) {
+            sum += 1 / Math.pow(rank, categorySkew);
+            cumulativeWeights[rank - 1] = sum;
+        }
+    }
+
+    /**
+     * Categories of one request, distinct, popular ones more often.
+     * */
+    List<String> randomRequest(Random random, int categoriesPerRequest) {
+        int count = Math.min(categoriesPerRequest, requestIds.size());
+        Set<String> request = new LinkedHashSet<>();
+        while (request.size() < count) {
+            double point = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+            int at = Arrays.binarySearch(cumulativeWeights, point);
+            request.add(requestIds.get(at >= 0 ? at : -at - 1));
+        }
+        return new ArrayList<>(request);
+    }
+}
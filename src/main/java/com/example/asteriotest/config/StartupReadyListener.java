@@ -0,0 +1,35 @@
+package com.example.asteriotest.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Logger;
+
+/**
+ * Logs how long after the JVM start the application became ready (after the startup warm-up),
+ * the time that matters when instances are added under load.
+ * With startup.exit-when-ready=true the application exits right after that: the training run of the fast-startup
+ * Maven profile (the JVM writes the class data sharing archive on exit) and src/fast-startup/measure-startup.sh use it.
+ * Not a conditional bean, Spring AOT would fix the condition at build time.
+ * */
+@Component
+public class StartupReadyListener {
+    private final boolean exitWhenReady;
+    private final Logger logger = Logger.getLogger(StartupReadyListener.class.getName());
+
+    public StartupReadyListener(@Value("${startup.exit-when-ready:false}") boolean exitWhenReady) {
+        this.exitWhenReady = exitWhenReady;
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        logger.info("Application ready in " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms after the JVM start");
+        if (exitWhenReady) {
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.asteriotest.config;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in serving mode "bid.serving.mode=virtual": Tomcat runs every request on its own virtual thread,
+ * so a request blocked on JDBC does not hold one of the 200 worker threads.
+ * The service layer runs on the request thread and inherits it, async MVC handlers use the same executor.
+ * The number of parallel database calls is still limited by DatabaseAccessLimiter and the Hikari pool.
+ * Requires Java 21 at runtime, the application does not start otherwise.
+ * The beans exist in both modes and read the property when the application starts, not a property condition:
+ * Spring AOT (the fast-startup build) would fix a condition at build time. In the platform mode they are
+ * what Spring Boot configures by default: the Tomcat worker pool and a ThreadPoolTaskExecutor (spring.task.execution.*).
+ * */
+@Configuration
+public class VirtualThreadServingConfig {
+    // null in the platform mode
+    private final ExecutorService virtualThreadExecutor;
+
+    public VirtualThreadServingConfig(@Value("${bid.serving.mode:platform}") String servingMode) {
+        this.virtualThreadExecutor = "virtual".equalsIgnoreCase(servingMode)
+                ? VirtualThreads.newPerTaskExecutor().orElseThrow(() -> new IllegalStateException(
+                        "bid.serving.mode=virtual requires Java 21 or newer, running on " + Runtime.version()))
+                : null;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (virtualThreadExecutor != null) {
+                protocolHandler.setExecutor(virtualThreadExecutor);
+            }
+        };
+    }
+
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return virtualThreadExecutor != null ? new TaskExecutorAdapter(virtualThreadExecutor) : builder.build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdown();
+        }
+    }
+}
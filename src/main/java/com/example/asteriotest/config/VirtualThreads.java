@@ -0,0 +1,29 @@
+package com.example.asteriotest.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads without compiling against Java 21:
+ * the project is built for Java 17, the executor is looked up when the application runs on a newer JVM.
+ * */
+public final class VirtualThreads {
+
+    private VirtualThreads() {}
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() if the running JVM has it.
+     * */
+    public static Optional<ExecutorService> newPerTaskExecutor() {
+        try {
+            Object executor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return Optional.of((ExecutorService) executor);
+        } catch (NoSuchMethodException exc) {
+            return Optional.empty();
+        } catch (IllegalAccessException | InvocationTargetException exc) {
+            throw new IllegalStateException("Cannot create a virtual thread executor", exc);
+        }
+    }
+}
@@ -6,11 +6,18 @@ import com.example.asteriotest.exception.bannerExceptions.InsertedCategoryDoesNo
 import com.example.asteriotest.model.Banner;
 import com.example.asteriotest.model.Category;
 import com.example.asteriotest.model.DTO.BannerDTO;
+import com.example.asteriotest.model.DTO.BannerSummary;
+import com.example.asteriotest.model.DTO.ImportReport;
+import com.example.asteriotest.model.DTO.SearchPage;
+import com.example.asteriotest.services.AdminSearchService;
 import com.example.asteriotest.model.RequestJournal;
 import com.example.asteriotest.repository.BannerRepository;
 import com.example.asteriotest.repository.CategoriesRepository;
 import com.example.asteriotest.repository.RequestJournalRepository;
 import com.example.asteriotest.services.BannerManagerService;
+import com.example.asteriotest.services.ImportFormat;
+import com.example.asteriotest.services.ImportService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -18,7 +25,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
-import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -27,9 +34,14 @@ import java.util.*;
 public class BannerManagerController {
 
     private BannerManagerService bannerManagerService;
+    private ImportService importService;
+    private AdminSearchService adminSearchService;
 
-    public BannerManagerController(BannerManagerService bannerManagerService) {
+    public BannerManagerController(BannerManagerService bannerManagerService, ImportService importService,
+                                   AdminSearchService adminSearchService) {
         this.bannerManagerService = bannerManagerService;
+        this.importService = importService;
+        this.adminSearchService = adminSearchService;
     }
 
     @PostMapping("banners/addBanner")
@@ -53,11 +65,16 @@ public class BannerManagerController {
         }
     }
 
+    /**
+     * Active banners whose name contains the text (starts with it, with prefix=true), not case sensitive.
+     * At most search.index.max-results best matches are returned, the full result set is read with /banners/search/page.
+     * */
     @GetMapping("/banners/search")
-    public ResponseEntity<List<Banner>> searchBanner(@RequestParam String name) {
+    public ResponseEntity<List<Banner>> searchBanner(@RequestParam String name,
+                                                     @RequestParam(defaultValue = "false") boolean prefix) {
 
         try {
-            return ResponseEntity.ok(bannerManagerService.searchBanner(name));
+            return ResponseEntity.ok(bannerManagerService.searchBanner(name, prefix));
         } catch (IllegalArgumentException exc) {
             return ResponseEntity.noContent().build();
         } catch (BannerNotFoundException exc) {
@@ -66,6 +83,21 @@ public class BannerManagerController {
 
     }
 
+    /**
+     * Paginated banner search: id, name, price and category ids of at most "size" banners with id greater than "after".
+     * The next page is requested with after = nextCursor of the answer.
+     * */
+    @GetMapping("/banners/search/page")
+    public ResponseEntity<SearchPage<BannerSummary>> searchBannerPage(@RequestParam String name,
+                                                                      @RequestParam(required = false) Long after,
+                                                                      @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(adminSearchService.searchBanners(name, after, size));
+        } catch (IllegalArgumentException exc) {
+            return ResponseEntity.noContent().build();
+        }
+    }
+
     @PutMapping("/banners/update")
     public ResponseEntity<String> updateBanner(@RequestBody BannerDTO bannerDTO) {
 
@@ -78,7 +110,22 @@ public class BannerManagerController {
         }
     }
 
-
-
-
+    /**
+     * Bulk import of banners. The body is NDJSON (one banner per line) or CSV with the "text/csv" Content-Type:
+     * nameBanner,text,price,categories - categories are requestIds separated by "|".
+     * Returns the result of every line.
+     * If the body cannot be read to the end: 400 with the error and the lines handled before it.
+     * */
+    @PostMapping("banners/import")
+    public ResponseEntity<ImportReport> importBanners(HttpServletRequest servletRequest) {
+        ImportReport report;
+        try {
+            report = importService.importBanners(servletRequest.getInputStream(),
+                    ImportFormat.fromContentType(servletRequest.getContentType()));
+        } catch (IOException exc) {
+            report = new ImportReport();
+            report.aborted("the body could not be read: " + exc.getMessage());
+        }
+        return report.getError() == null ? ResponseEntity.ok(report) : ResponseEntity.badRequest().body(report);
+    }
 }
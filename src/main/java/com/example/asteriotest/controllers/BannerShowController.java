@@ -1,19 +1,19 @@
 package com.example.asteriotest.controllers;
 
-import com.example.asteriotest.exception.bannerExceptions.BannerAlreadyShownException;
-import com.example.asteriotest.exception.bannerExceptions.BannerNotFoundException;
 import com.example.asteriotest.model.Banner;
 import com.example.asteriotest.model.Category;
+import com.example.asteriotest.model.DTO.BidRequestItem;
 import com.example.asteriotest.model.RequestJournal;
 import com.example.asteriotest.repository.BannerRepository;
 import com.example.asteriotest.repository.CategoriesRepository;
 import com.example.asteriotest.repository.RequestJournalRepository;
 import com.example.asteriotest.services.BannerManagerService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -47,12 +47,22 @@ public class BannerShowController {
      * */
     @GetMapping("/bid")
     public ResponseEntity<String> bid(HttpServletRequest servletRequest, @RequestParam("cat") List<String> categories) {
+        return BidResponses.of(bannerManagerService.bid(servletRequest, categories));
+    }
+
+    /**
+     * Several bid requests in one call: [{"ip": ..., "userAgent": ..., "cat": [...]}, ...].
+     * The answer is an array in the same order, each item has the status /bid would return (200 or 204)
+     * and the banner text or the error message.
+     * An invalid batch (too large, a null item, an item without a valid ip, a null or blank category) is rejected as a whole
+     * with 400 and the error message as the body.
+     * */
+    @PostMapping("/bid/batch")
+    public ResponseEntity<?> bidBatch(@RequestBody List<BidRequestItem> requests) {
         try {
-            return ResponseEntity.status(HttpStatus.OK).body(bannerManagerService.bid(servletRequest, categories));
-        } catch (BannerAlreadyShownException exc) {
-            return ResponseEntity.status(HttpStatus.NO_CONTENT).body(exc.getMessage());
-        } catch (BannerNotFoundException exc) {
-            return ResponseEntity.status(HttpStatus.NO_CONTENT).body(exc.getMessage());
+            return ResponseEntity.ok(bannerManagerService.bidBatch(requests));
+        } catch (IllegalArgumentException exc) {
+            return ResponseEntity.badRequest().body(exc.getMessage());
         }
     }
 }
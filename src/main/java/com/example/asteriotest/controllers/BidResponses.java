@@ -0,0 +1,25 @@
+package com.example.asteriotest.controllers;
+
+import com.example.asteriotest.model.DTO.BidResult;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * HTTP answers of /bid and /bid/reactive. A ResponseEntity is immutable (its headers are read-only),
+ * so the two 204 answers are built once and shared by all requests.
+ * */
+final class BidResponses {
+    private static final ResponseEntity<String> ALREADY_SHOWN =
+            ResponseEntity.status(HttpStatus.NO_CONTENT).body(BidResult.ALREADY_SHOWN.error().getMessage());
+    private static final ResponseEntity<String> NO_CANDIDATES =
+            ResponseEntity.status(HttpStatus.NO_CONTENT).body(BidResult.NO_CANDIDATES.error().getMessage());
+
+    private BidResponses() {}
+
+    static ResponseEntity<String> of(BidResult result) {
+        if (result instanceof BidResult.Served served) {
+            return ResponseEntity.status(HttpStatus.OK).body(served.banner().getText());
+        }
+        return result == BidResult.ALREADY_SHOWN ? ALREADY_SHOWN : NO_CANDIDATES;
+    }
+}
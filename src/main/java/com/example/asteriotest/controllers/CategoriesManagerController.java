@@ -4,14 +4,23 @@ import com.example.asteriotest.exception.categoriesExceptions.CategoryAlreadyExi
 import com.example.asteriotest.exception.categoriesExceptions.CategoryNotFoundException;
 import com.example.asteriotest.exception.categoriesExceptions.DependentСategoryException;
 import com.example.asteriotest.model.Category;
+import com.example.asteriotest.model.DTO.CategorySummary;
+import com.example.asteriotest.model.DTO.ImportReport;
+import com.example.asteriotest.model.DTO.SearchPage;
+import com.example.asteriotest.services.AdminSearchService;
 import com.example.asteriotest.repository.BannerRepository;
 import com.example.asteriotest.repository.CategoriesRepository;
+import com.example.asteriotest.services.CategoryDeleteJob;
 import com.example.asteriotest.services.CategoryManagerService;
+import com.example.asteriotest.services.ImportFormat;
+import com.example.asteriotest.services.ImportService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,11 +30,16 @@ public class CategoriesManagerController {
     private CategoriesRepository categoryRepo;
     private BannerRepository bannerRepo;
     private CategoryManagerService categoryManagerService;
+    private ImportService importService;
+    private AdminSearchService adminSearchService;
 
-    public CategoriesManagerController(CategoriesRepository categoryRepo, BannerRepository bannerRepo, CategoryManagerService categoryManagerService) {
+    public CategoriesManagerController(CategoriesRepository categoryRepo, BannerRepository bannerRepo, CategoryManagerService categoryManagerService,
+                                       ImportService importService, AdminSearchService adminSearchService) {
         this.categoryRepo = categoryRepo;
         this.bannerRepo = bannerRepo;
         this.categoryManagerService = categoryManagerService;
+        this.importService = importService;
+        this.adminSearchService = adminSearchService;
     }
 
 
@@ -52,10 +66,35 @@ public class CategoriesManagerController {
     }
 
 
+    /**
+     * Cascade deletion of a category in the background: answers 202 with the job at once,
+     * the progress is available at /categories/delete/jobs/{jobId}
+     * */
+    @PostMapping("/categories/delete/{id}/job")
+    public ResponseEntity<CategoryDeleteJob> deleteCategoryInBackground(@PathVariable Long id) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(categoryManagerService.deleteCategoryInBackground(id));
+        } catch (CategoryNotFoundException exc) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
+    @GetMapping("/categories/delete/jobs/{jobId}")
+    public ResponseEntity<CategoryDeleteJob> deleteJob(@PathVariable String jobId) {
+        return categoryManagerService.findDeleteJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    /**
+     * Active categories whose name or requestId contains the text (starts with it, with prefix=true), not case sensitive.
+     * At most search.index.max-results best matches are returned, all categories with a matching name are paged by /categories/search/page.
+     * */
     @GetMapping("/categories/search")
-    public ResponseEntity<List<Category>> searchCategory(@RequestParam String name) throws IllegalArgumentException {
+    public ResponseEntity<List<Category>> searchCategory(@RequestParam String name,
+                                                         @RequestParam(defaultValue = "false") boolean prefix) throws IllegalArgumentException {
         try {
-            return ResponseEntity.ok(categoryManagerService.searchCategory(name));
+            return ResponseEntity.ok(categoryManagerService.searchCategory(name, prefix));
         } catch (IllegalArgumentException exc) {
             return ResponseEntity.noContent().build();
         } catch (CategoryNotFoundException exc) {
@@ -64,6 +103,20 @@ public class CategoriesManagerController {
     }
 
 
+    /**
+     * Paginated category search: id, name and requestId of at most "size" categories with id greater than "after".
+     * */
+    @GetMapping("/categories/search/page")
+    public ResponseEntity<SearchPage<CategorySummary>> searchCategoryPage(@RequestParam String name,
+                                                                          @RequestParam(required = false) Long after,
+                                                                          @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(adminSearchService.searchCategories(name, after, size));
+        } catch (IllegalArgumentException exc) {
+            return ResponseEntity.noContent().build();
+        }
+    }
+
     @PutMapping("/categories/update")
     public ResponseEntity<String> updateCategory(@RequestBody Category category) {
         try {
@@ -75,4 +128,21 @@ public class CategoriesManagerController {
         }
     }
 
+    /**
+     * Bulk import of categories. The body is NDJSON (one category per line) or CSV with the "text/csv" Content-Type:
+     * name,requestId. Returns the result of every line.
+     * If the body cannot be read to the end: 400 with the error and the lines handled before it.
+     * */
+    @PostMapping("categories/import")
+    public ResponseEntity<ImportReport> importCategories(HttpServletRequest servletRequest) {
+        ImportReport report;
+        try {
+            report = importService.importCategories(servletRequest.getInputStream(),
+                    ImportFormat.fromContentType(servletRequest.getContentType()));
+        } catch (IOException exc) {
+            report = new ImportReport();
+            report.aborted("the body could not be read: " + exc.getMessage());
+        }
+        return report.getError() == null ? ResponseEntity.ok(report) : ResponseEntity.badRequest().body(report);
+    }
 }
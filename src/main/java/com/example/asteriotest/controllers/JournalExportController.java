@@ -0,0 +1,57 @@
+package com.example.asteriotest.controllers;
+
+import com.example.asteriotest.services.ImportFormat;
+import com.example.asteriotest.services.JournalExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.logging.Logger;
+
+@Controller
+public class JournalExportController {
+    private JournalExportService journalExportService;
+    private final Logger logger = Logger.getLogger(JournalExportController.class.getName());
+
+    public JournalExportController(JournalExportService journalExportService) {
+        this.journalExportService = journalExportService;
+    }
+
+    /**
+     * Request journal records with from <= requestTime < to, as NDJSON (default) or CSV (format=csv).
+     * The body is written while the records are read, it is not built in memory.
+     * The request runs on the request thread: an async response would be cut by the async request timeout.
+     * */
+    @GetMapping("/journal/export")
+    public void export(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                       @RequestParam(defaultValue = "ndjson") String format,
+                       HttpServletResponse response) throws IOException {
+        ImportFormat exportFormat;
+        try {
+            exportFormat = ImportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException exc) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Unknown format " + format);
+            return;
+        }
+        if (!from.isBefore(to)) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "\"from\" must be before \"to\"");
+            return;
+        }
+
+        String extension = exportFormat == ImportFormat.CSV ? "csv" : "ndjson";
+        response.setContentType(exportFormat == ImportFormat.CSV ? "text/csv" : "application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"request_journal-"
+                + from.toLocalDate() + "-" + to.toLocalDate() + "." + extension + "\"");
+
+        long written = journalExportService.export(from, to, exportFormat, response.getOutputStream());
+        logger.info("Request journal exported from " + from + " to " + to + ", records: " + written);
+    }
+}
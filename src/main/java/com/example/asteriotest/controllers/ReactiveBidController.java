@@ -0,0 +1,32 @@
+package com.example.asteriotest.controllers;
+
+import com.example.asteriotest.services.ReactiveBidService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Controller
+public class ReactiveBidController {
+    private final ReactiveBidService reactiveBidService;
+
+    public ReactiveBidController(ReactiveBidService reactiveBidService) {
+        this.reactiveBidService = reactiveBidService;
+    }
+
+    /**
+     * The same contract as /bid: the text of the most expensive banner of one of the categories
+     * that has not been shown to the user yet, or 204.
+     * The request is processed asynchronously, the servlet thread is released
+     * while a blocking stage waits on the bounded elastic scheduler.
+     * */
+    @GetMapping("/bid/reactive")
+    public Mono<ResponseEntity<String>> bid(HttpServletRequest servletRequest, @RequestParam("cat") List<String> categories) {
+        return reactiveBidService.bid(servletRequest.getRemoteAddr(), servletRequest.getHeader("User-Agent"), categories)
+                .map(BidResponses::of);
+    }
+}
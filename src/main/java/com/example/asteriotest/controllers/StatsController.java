@@ -0,0 +1,50 @@
+package com.example.asteriotest.controllers;
+
+import com.example.asteriotest.model.DTO.BannerStats;
+import com.example.asteriotest.model.DTO.CategoryStats;
+import com.example.asteriotest.model.DTO.StatsReport;
+import com.example.asteriotest.services.BannerStatsService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.time.LocalDate;
+
+/**
+ * Impressions and revenue per banner and per category, from the live counters (see BannerStatsService).
+ * "from" and "to" are days in ISO format (2023-03-25), both included, today by default.
+ * */
+@Controller
+public class StatsController {
+    private BannerStatsService bannerStatsService;
+
+    public StatsController(BannerStatsService bannerStatsService) {
+        this.bannerStatsService = bannerStatsService;
+    }
+
+    @GetMapping("/stats/banners")
+    public ResponseEntity<StatsReport<BannerStats>> bannerStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate today = LocalDate.now();
+        try {
+            return ResponseEntity.ok(bannerStatsService.bannerReport(from == null ? today : from, to == null ? today : to));
+        } catch (IllegalArgumentException exc) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/stats/categories")
+    public ResponseEntity<StatsReport<CategoryStats>> categoryStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate today = LocalDate.now();
+        try {
+            return ResponseEntity.ok(bannerStatsService.categoryReport(from == null ? today : from, to == null ? today : to));
+        } catch (IllegalArgumentException exc) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
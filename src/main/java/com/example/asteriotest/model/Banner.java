@@ -3,6 +3,8 @@ package com.example.asteriotest.model;
 
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.Where;
 
@@ -13,6 +15,7 @@ import java.util.Set;
 
 @Entity
 @Where(clause = "deleted = false")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Banner {
 
     @Id
@@ -30,6 +33,7 @@ public class Banner {
 
     @Column(nullable = false)
     @ManyToMany(cascade = CascadeType.MERGE)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     Set<Category> categories;
 
     public Banner() {}
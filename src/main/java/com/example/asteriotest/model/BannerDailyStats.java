@@ -0,0 +1,69 @@
+package com.example.asteriotest.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * Live counters of one banner for one day, written by BannerStatsService.
+ * Requests answered with 204 have no banner, they are counted in the row with bannerId = 0.
+ * Every flush adds the increments since the previous flush in the database (impressions = impressions + ?),
+ * so instances flushing at the same time do not lose each other's counts.
+ * */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_stats_banner_day", columnNames = {"bannerId", "stats_day"}))
+public class BannerDailyStats {
+    public static final long NO_BANNER = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Column(nullable = false)
+    private long bannerId;
+    @Column(name = "stats_day", nullable = false)
+    private LocalDate day;
+    @Column(nullable = false)
+    private long impressions;
+    @Column(nullable = false)
+    private double revenue;
+    @Column(nullable = false)
+    private long alreadyShown;
+    @Column(nullable = false)
+    private long notFound;
+
+    public BannerDailyStats() {}
+
+    public BannerDailyStats(long bannerId, LocalDate day) {
+        this.bannerId = bannerId;
+        this.day = day;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getBannerId() {
+        return bannerId;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public long getImpressions() {
+        return impressions;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public long getAlreadyShown() {
+        return alreadyShown;
+    }
+
+    public long getNotFound() {
+        return notFound;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.asteriotest.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Denormalized read model of the bid: one row per active "category - banner" link,
+ * with everything a bid needs (request_id, banner_id, price, text).
+ * The entity only defines the table, the rows are written and read with plain SQL, see BidCandidateRepository.
+ * */
+@Entity
+@Table(name = "bid_candidate", indexes = {
+        // the DATABASE bid strategy: candidates of the requested categories, the most expensive first
+        @Index(name = "idx_bid_candidate_price", columnList = "requestId, price, bannerId"),
+        @Index(name = "idx_bid_candidate_banner", columnList = "bannerId")
+})
+@IdClass(BidCandidate.Key.class)
+public class BidCandidate {
+
+    @Id
+    @Column(nullable = false)
+    private String requestId;
+    @Id
+    @Column(nullable = false)
+    private long bannerId;
+    @Column(nullable = false)
+    private double price;
+    @Column(nullable = false)
+    private String text;
+
+    public BidCandidate() {}
+
+    public static class Key implements Serializable {
+        private String requestId;
+        private long bannerId;
+
+        public Key() {}
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && bannerId == key.bannerId && Objects.equals(requestId, key.requestId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(requestId, bannerId);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.example.asteriotest.model;
 
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.Where;
 
@@ -9,6 +11,7 @@ import java.util.List;
 
 @Entity
 @Where(clause = "deleted = false")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Category {
 
     @Id
@@ -58,6 +61,7 @@ public class Category {
     }
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     List<Banner> banners;
 
     public List<Banner> getBanners() {
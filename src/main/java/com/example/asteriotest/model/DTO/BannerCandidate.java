@@ -0,0 +1,41 @@
+package com.example.asteriotest.model.DTO;
+
+/**
+ * Immutable view of an active banner that is enough to serve a bid:
+ * the identifier (for the request log), the price (for ordering) and the text (the response body).
+ * */
+public final class BannerCandidate {
+    private final Long id;
+    private final double price;
+    private final String text;
+
+    public BannerCandidate(Long id, double price, String text) {
+        this.id = id;
+        this.price = price;
+        this.text = text;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * The same banner with another price, e.g. the price charged for it (see BidCharge).
+     * */
+    public BannerCandidate withPrice(double price) {
+        return price == this.price ? this : new BannerCandidate(id, price, text);
+    }
+
+    @Override
+    public String toString() {
+        return "id: " + id + ", price: " + price;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.asteriotest.model.DTO;
+
+/**
+ * "banner - category" link by ids.
+ * */
+public interface BannerCategoryIdRow {
+    Long getBannerId();
+
+    Long getCategoryId();
+}
@@ -0,0 +1,46 @@
+package com.example.asteriotest.model.DTO;
+
+import java.util.List;
+
+/**
+ * One banner of the bulk import.
+ * Categories are referenced by requestId, in CSV they are separated by "|".
+ * */
+public class BannerImportRow {
+    String nameBanner;
+    String text;
+    Integer price;
+    List<String> categories;
+
+    public String getNameBanner() {
+        return nameBanner;
+    }
+
+    public void setNameBanner(String nameBanner) {
+        this.nameBanner = nameBanner;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public Integer getPrice() {
+        return price;
+    }
+
+    public void setPrice(Integer price) {
+        this.price = price;
+    }
+
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(List<String> categories) {
+        this.categories = categories;
+    }
+}
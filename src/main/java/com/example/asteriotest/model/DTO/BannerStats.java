@@ -0,0 +1,25 @@
+package com.example.asteriotest.model.DTO;
+
+public class BannerStats {
+    private final long bannerId;
+    private final long impressions;
+    private final double revenue;
+
+    public BannerStats(long bannerId, long impressions, double revenue) {
+        this.bannerId = bannerId;
+        this.impressions = impressions;
+        this.revenue = revenue;
+    }
+
+    public long getBannerId() {
+        return bannerId;
+    }
+
+    public long getImpressions() {
+        return impressions;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.asteriotest.model.DTO;
+
+/**
+ * Stored banner counters of several days summed up per banner.
+ * */
+public interface BannerStatsRow {
+    long getBannerId();
+
+    long getImpressions();
+
+    double getRevenue();
+
+    long getAlreadyShown();
+
+    long getNotFound();
+}
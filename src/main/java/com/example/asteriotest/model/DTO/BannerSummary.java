@@ -0,0 +1,36 @@
+package com.example.asteriotest.model.DTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lightweight banner for the admin search: no text and no category entities, only their ids.
+ * */
+public class BannerSummary {
+    private final Long id;
+    private final String name;
+    private final double price;
+    private final List<Long> categoryIds = new ArrayList<>();
+
+    public BannerSummary(Long id, String name, double price) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public List<Long> getCategoryIds() {
+        return categoryIds;
+    }
+}
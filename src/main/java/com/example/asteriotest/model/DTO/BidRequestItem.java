@@ -0,0 +1,36 @@
+package com.example.asteriotest.model.DTO;
+
+import java.util.List;
+
+/**
+ * One bid request of POST /bid/batch: the user it came from and the requested categories.
+ * */
+public class BidRequestItem {
+    String ip;
+    String userAgent;
+    List<String> cat;
+
+    public String getIp() {
+        return ip;
+    }
+
+    public void setIp(String ip) {
+        this.ip = ip;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public void setUserAgent(String userAgent) {
+        this.userAgent = userAgent;
+    }
+
+    public List<String> getCat() {
+        return cat;
+    }
+
+    public void setCat(List<String> cat) {
+        this.cat = cat;
+    }
+}
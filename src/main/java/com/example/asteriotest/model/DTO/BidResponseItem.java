@@ -0,0 +1,23 @@
+package com.example.asteriotest.model.DTO;
+
+/**
+ * Result of one bid request of POST /bid/batch, in the order of the requests.
+ * status is what /bid would answer: 200 with the banner text or 204 with the error message.
+ * */
+public class BidResponseItem {
+    private final int status;
+    private final String text;
+
+    public BidResponseItem(int status, String text) {
+        this.status = status;
+        this.text = text;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
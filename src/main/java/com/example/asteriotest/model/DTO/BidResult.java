@@ -0,0 +1,43 @@
+package com.example.asteriotest.model.DTO;
+
+import com.example.asteriotest.model.JournalError;
+
+/**
+ * Outcome of one bid: the served banner, or one of the two "nothing to show" answers (HTTP 204).
+ * The 204 outcomes carry no data, their single instances are shared,
+ * so a bid that serves nothing allocates no result and throws no exception.
+ * */
+public sealed interface BidResult permits BidResult.Served, BidResult.AlreadyShown, BidResult.NoCandidates {
+    AlreadyShown ALREADY_SHOWN = new AlreadyShown();
+    NoCandidates NO_CANDIDATES = new NoCandidates();
+
+    /**
+     * The banner is shown to the user, its text is the answer.
+     * */
+    record Served(BannerCandidate banner) implements BidResult {
+    }
+
+    /**
+     * The requested categories have banners, but the user has already seen all of them.
+     * */
+    final class AlreadyShown implements BidResult {
+        private AlreadyShown() {
+        }
+
+        public JournalError error() {
+            return JournalError.ALREADY_SHOWN;
+        }
+    }
+
+    /**
+     * The requested categories have no active banners.
+     * */
+    final class NoCandidates implements BidResult {
+        private NoCandidates() {
+        }
+
+        public JournalError error() {
+            return JournalError.NOT_FOUND;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.asteriotest.model.DTO;
+
+/**
+ * One category of the bulk import.
+ * */
+public class CategoryImportRow {
+    String name;
+    String requestId;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.asteriotest.model.DTO;
+
+/**
+ * Totals of the active banners of a category. A banner with several categories is counted in each of them.
+ * */
+public class CategoryStats {
+    private final String requestId;
+    private final long impressions;
+    private final double revenue;
+
+    public CategoryStats(String requestId, long impressions, double revenue) {
+        this.requestId = requestId;
+        this.impressions = impressions;
+        this.revenue = revenue;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public long getImpressions() {
+        return impressions;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+}
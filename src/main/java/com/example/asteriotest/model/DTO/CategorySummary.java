@@ -0,0 +1,28 @@
+package com.example.asteriotest.model.DTO;
+
+/**
+ * Lightweight category for the admin search, without the banners.
+ * */
+public class CategorySummary {
+    private final Long id;
+    private final String name;
+    private final String requestId;
+
+    public CategorySummary(Long id, String name, String requestId) {
+        this.id = id;
+        this.name = name;
+        this.requestId = requestId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+}
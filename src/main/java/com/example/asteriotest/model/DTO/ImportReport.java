@@ -0,0 +1,51 @@
+package com.example.asteriotest.model.DTO;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Report of a bulk import: totals and the result of every line, in the order of the lines.
+ * If the body could not be read to the end, error is the reason and the rows are those read before it.
+ * */
+public class ImportReport {
+    private int imported;
+    private int failed;
+    private final List<ImportRowResult> rows = new ArrayList<>();
+    private String error;
+
+    public void created(long line, Long id) {
+        imported++;
+        rows.add(new ImportRowResult(line, ImportRowResult.CREATED, id, null));
+    }
+
+    public void failed(long line, String message) {
+        failed++;
+        rows.add(new ImportRowResult(line, ImportRowResult.FAILED, null, message));
+    }
+
+    public void aborted(String message) {
+        error = message;
+    }
+
+    public int getTotal() {
+        return imported + failed;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public List<ImportRowResult> getRows() {
+        rows.sort(Comparator.comparingLong(ImportRowResult::getLine));
+        return rows;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.asteriotest.model.DTO;
+
+/**
+ * Result of one line of the bulk import: the id of the created record or the reason it was rejected.
+ * */
+public class ImportRowResult {
+    public static final String CREATED = "CREATED";
+    public static final String FAILED = "FAILED";
+
+    private final long line;
+    private final String status;
+    private final Long id;
+    private final String message;
+
+    public ImportRowResult(long line, String status, Long id, String message) {
+        this.line = line;
+        this.status = status;
+        this.id = id;
+        this.message = message;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
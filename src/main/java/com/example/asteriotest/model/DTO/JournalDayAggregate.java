@@ -0,0 +1,14 @@
+package com.example.asteriotest.model.DTO;
+
+/**
+ * Request journal records of one day grouped by banner (an empty banner groups the errors).
+ * */
+public interface JournalDayAggregate {
+    Long getBannerId();
+
+    long getImpressions();
+
+    Double getRevenue();
+
+    long getErrorCount();
+}
@@ -0,0 +1,25 @@
+package com.example.asteriotest.model.DTO;
+
+import com.example.asteriotest.model.JournalError;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat projection of a request journal record, without loading the banner.
+ * The User-Agent string is joined from the user_agent dictionary.
+ * */
+public interface JournalRow {
+    Long getId();
+
+    byte[] getIp();
+
+    String getUserAgent();
+
+    LocalDateTime getRequestTime();
+
+    Long getBannerId();
+
+    Double getBannerPrice();
+
+    JournalError getErrorCode();
+}
@@ -0,0 +1,25 @@
+package com.example.asteriotest.model.DTO;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated search, ordered by id.
+ * nextCursor is the value for the "after" parameter of the next page, null on the last page.
+ * */
+public class SearchPage<T> {
+    private final List<T> items;
+    private final Long nextCursor;
+
+    public SearchPage(List<T> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.asteriotest.model.DTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of a request journal record of a shown banner, used to restore the frequency cap after a restart
+ * and by the DATABASE strategy of batch bids. The User-Agent string is joined from the user_agent dictionary.
+ * */
+public interface ShownBannerRow {
+    Long getBannerId();
+
+    byte[] getIp();
+
+    Integer getUserAgentId();
+
+    String getUserAgent();
+
+    LocalDateTime getRequestTime();
+}
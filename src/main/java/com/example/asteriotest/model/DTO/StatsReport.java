@@ -0,0 +1,56 @@
+package com.example.asteriotest.model.DTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Bid totals of the days from..to (inclusive) and their split by banner or category, the highest revenue first.
+ * */
+public class StatsReport<T> {
+    private final LocalDate from;
+    private final LocalDate to;
+    private final long impressions;
+    private final double revenue;
+    private final long alreadyShown;
+    private final long notFound;
+    private final List<T> items;
+
+    public StatsReport(LocalDate from, LocalDate to, long impressions, double revenue,
+                       long alreadyShown, long notFound, List<T> items) {
+        this.from = from;
+        this.to = to;
+        this.impressions = impressions;
+        this.revenue = revenue;
+        this.alreadyShown = alreadyShown;
+        this.notFound = notFound;
+        this.items = items;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public long getImpressions() {
+        return impressions;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public long getAlreadyShown() {
+        return alreadyShown;
+    }
+
+    public long getNotFound() {
+        return notFound;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+}
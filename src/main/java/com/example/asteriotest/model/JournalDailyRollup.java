@@ -0,0 +1,63 @@
+package com.example.asteriotest.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * Daily aggregate of the request journal for one banner.
+ * Requests that ended with an error (204) have no banner, they are counted in the row with an empty banner.
+ * */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_rollup_banner_day", columnNames = {"bannerId", "rollup_day"}))
+public class JournalDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Column
+    private Long bannerId;
+    @Column(name = "rollup_day", nullable = false)
+    private LocalDate day;
+    @Column(nullable = false)
+    private long impressions;
+    @Column(nullable = false)
+    private double revenue;
+    @Column(nullable = false)
+    private long errorCount;
+
+    public JournalDailyRollup() {}
+
+    public JournalDailyRollup(Long bannerId, LocalDate day, long impressions, double revenue, long errorCount) {
+        this.bannerId = bannerId;
+        this.day = day;
+        this.impressions = impressions;
+        this.revenue = revenue;
+        this.errorCount = errorCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getBannerId() {
+        return bannerId;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public long getImpressions() {
+        return impressions;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.asteriotest.model;
+
+/**
+ * Why a bid request was answered with 204. The request journal stores the one-byte code instead of the message.
+ * The codes are persisted: never change or reuse them, add new ones at the end.
+ * */
+public enum JournalError {
+    ALREADY_SHOWN(1, "ERROR 204: This banner has already been shown to this user before"),
+    NOT_FOUND(2, "ERROR 204: banner with this category not found");
+
+    private final byte code;
+    private final String message;
+
+    JournalError(int code, String message) {
+        this.code = (byte) code;
+        this.message = message;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public static JournalError ofCode(int code) {
+        for (JournalError error : values()) {
+            if (error.code == code) {
+                return error;
+            }
+        }
+        throw new IllegalArgumentException("Unknown request journal error code: " + code);
+    }
+}
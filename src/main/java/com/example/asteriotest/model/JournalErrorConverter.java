@@ -0,0 +1,20 @@
+package com.example.asteriotest.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores JournalError as its explicit code, not as the ordinal or the name.
+ * */
+@Converter(autoApply = true)
+public class JournalErrorConverter implements AttributeConverter<JournalError, Byte> {
+    @Override
+    public Byte convertToDatabaseColumn(JournalError error) {
+        return error == null ? null : error.getCode();
+    }
+
+    @Override
+    public JournalError convertToEntityAttribute(Byte code) {
+        return code == null ? null : JournalError.ofCode(code);
+    }
+}
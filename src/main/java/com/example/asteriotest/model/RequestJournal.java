@@ -3,10 +3,18 @@ package com.example.asteriotest.model;
 import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Set;
 
+/**
+ * One bid request. The repeated strings are stored compactly: the IP as 4 or 16 bytes (see IpAddresses),
+ * the User-Agent as the id of the user_agent dictionary (see UserAgentDictionary), the 204 reason as a code.
+ * */
 @Entity
+@Table(indexes = {
+        // covers the "already shown today" lookup: the anti-join of the DATABASE bid strategy, fixed-size keys only
+        @Index(name = "idx_journal_banner_ip_agent_time", columnList = "banner_id, ip, userAgentId, requestTime"),
+        // time ranges: the export (in time order), the daily rollup and the expiry
+        @Index(name = "idx_journal_time", columnList = "requestTime")
+})
 public class RequestJournal {
 
     @Id
@@ -14,23 +22,29 @@ public class RequestJournal {
     private Long id;
 
 
+    @Column(length = 16)
+    private byte[] ip;
     @Column
-    private String ipAddress;
-    @Column
+    private Integer userAgentId;
+    // the string is kept only until the record is saved, JournalWriter replaces it with userAgentId
+    @Transient
     private String userAgent;
     @Column
     private LocalDateTime requestTime;
 
+    // no foreign key: MySQL does not allow them on partitioned tables (journal.storage.mode=MYSQL),
+    // banners are only deleted logically anyway
     @ManyToOne
+    @JoinColumn(foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     public Banner banner;
 
     @Column
     private double bannerPrice;
     @Column
-    private String errorMessage;
+    private JournalError errorCode;
 
-    public RequestJournal(String ipAddress, String userAgent, LocalDateTime requestTime, Banner banner, double bannerPrice) {
-        this.ipAddress = ipAddress;
+    public RequestJournal(byte[] ip, String userAgent, LocalDateTime requestTime, Banner banner, double bannerPrice) {
+        this.ip = ip;
         this.userAgent = userAgent;
         this.requestTime = requestTime;
         this.banner = banner;
@@ -38,17 +52,33 @@ public class RequestJournal {
         this.bannerPrice = bannerPrice;
     }
 
-    public RequestJournal(String ipAddress, String userAgent, LocalDateTime requestTime, String errorMessage) {
-        this.ipAddress = ipAddress;
+    public RequestJournal(byte[] ip, String userAgent, LocalDateTime requestTime, JournalError errorCode) {
+        this.ip = ip;
         this.userAgent = userAgent;
         this.requestTime = requestTime;
-        this.errorMessage = errorMessage;
+        this.errorCode = errorCode;
     }
 
     public RequestJournal() {
 
     }
 
+    public byte[] getIp() {
+        return ip;
+    }
+
+    public void setIp(byte[] ip) {
+        this.ip = ip;
+    }
+
+    public Integer getUserAgentId() {
+        return userAgentId;
+    }
+
+    public void setUserAgentId(Integer userAgentId) {
+        this.userAgentId = userAgentId;
+    }
+
     public String getUserAgent() {
         return userAgent;
     }
@@ -81,12 +111,12 @@ public class RequestJournal {
         this.bannerPrice = bannerPrice;
     }
 
-    public String getErrorMessage() {
-        return errorMessage;
+    public JournalError getErrorCode() {
+        return errorCode;
     }
 
-    public void setErrorMessage(String errorMessage) {
-        this.errorMessage = errorMessage;
+    public void setErrorCode(JournalError errorCode) {
+        this.errorCode = errorCode;
     }
 
     public void setId(Long id) {
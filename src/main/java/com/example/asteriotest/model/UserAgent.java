@@ -0,0 +1,42 @@
+package com.example.asteriotest.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Dictionary of the User-Agent strings of the request journal: a journal record keeps only the 4-byte id.
+ * The unique SHA-256 digest stands in for a unique index on the long string itself,
+ * so several application instances never insert the same string twice (see UserAgentDictionary).
+ * */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_user_agent_digest", columnNames = "digest"))
+public class UserAgent {
+    public static final int MAX_LENGTH = 1024;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Integer id;
+
+    @Column(nullable = false, length = 32)
+    private byte[] digest;
+    @Column(nullable = false, length = MAX_LENGTH)
+    private String userAgent;
+
+    public UserAgent() {}
+
+    public UserAgent(byte[] digest, String userAgent) {
+        this.digest = digest;
+        this.userAgent = userAgent;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public byte[] getDigest() {
+        return digest;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.asteriotest.repository;
+
+import com.example.asteriotest.model.BannerDailyStats;
+import com.example.asteriotest.model.DTO.BannerStatsRow;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BannerDailyStatsRepository extends JpaRepository<BannerDailyStats, Long> {
+    @Query("select s.bannerId from BannerDailyStats s where s.day = :day and s.bannerId in :bannerIds")
+    List<Long> findBannerIdsByDay(@Param("day") LocalDate day, @Param("bannerIds") Collection<Long> bannerIds);
+
+    List<BannerDailyStats> findAllByDayGreaterThanEqual(LocalDate day);
+
+    @Query("select s.bannerId as bannerId, sum(s.impressions) as impressions, sum(s.revenue) as revenue, " +
+            "sum(s.alreadyShown) as alreadyShown, sum(s.notFound) as notFound " +
+            "from BannerDailyStats s where s.day >= :from and s.day <= :to group by s.bannerId")
+    List<BannerStatsRow> sumByBanner(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
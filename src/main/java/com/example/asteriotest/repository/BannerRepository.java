@@ -2,22 +2,33 @@ package com.example.asteriotest.repository;
 
 import com.example.asteriotest.model.Banner;
 import com.example.asteriotest.model.Category;
+import com.example.asteriotest.model.DTO.BannerCategoryIdRow;
+import com.example.asteriotest.model.DTO.BannerSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BannerRepository extends JpaRepository<Banner, Long> {
     @Override
     Optional<Banner> findById(Long aLong);
-    Optional<List<Banner>> findAllByNameBannerContains(String name);
     Optional<List<Banner>> findAllByCategories_name(String name);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     boolean existsByNameBanner(String nameBanner);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     boolean existsById(Long id);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Banner> findByNameBanner(String name);
 
     Optional<List<Banner>> findAllByCategories_nameIn(List<String> categories);
@@ -27,6 +38,31 @@ public interface BannerRepository extends JpaRepository<Banner, Long> {
 
     Optional<List<Banner>> findAllByCategories_requestIdIn(List<String> categories);
 
+    /**
+     * Keyset page of the admin search: banners with id > after whose name matches the pattern (lower case, "!" escapes % and _).
+     * Pass Pageable.ofSize(n) to get LIMIT n.
+     * */
+    @Query("select new com.example.asteriotest.model.DTO.BannerSummary(b.id, b.nameBanner, b.price) from Banner b " +
+            "where lower(b.nameBanner) like :pattern escape '!' and b.id > :after order by b.id")
+    Stream<BannerSummary> searchPage(@Param("pattern") String pattern, @Param("after") Long after, Pageable limit);
 
+    @Query("select new com.example.asteriotest.model.DTO.BannerSummary(b.id, b.nameBanner, b.price) from Banner b where b.deleted = false")
+    List<BannerSummary> findActiveSummaries();
 
+    @Query("select b.id as bannerId, c.id as categoryId from Banner b join b.categories c where b.id in :ids")
+    List<BannerCategoryIdRow> findCategoryIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select b.nameBanner from Banner b where b.nameBanner in :names")
+    List<String> findExistingNames(@Param("names") Collection<String> names);
+
+    @Query("select b.id from Banner b join b.categories c where c.id = :categoryId order by b.id")
+    List<Long> findIdsByCategory(@Param("categoryId") Long categoryId, Pageable limit);
+
+    /**
+     * Logical deletion of several banners with one statement, the suffix keeps the names unique (see deleteBanner()).
+     * */
+    @Modifying
+    @Query("update Banner b set b.deleted = true, b.nameBanner = concat(b.nameBanner, :suffix) " +
+            "where b.id in :ids and b.deleted = false")
+    int markDeleted(@Param("ids") Collection<Long> ids, @Param("suffix") String suffix);
 }
@@ -0,0 +1,124 @@
+package com.example.asteriotest.repository;
+
+import com.example.asteriotest.model.DTO.BannerCandidate;
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * The bid_candidate read table (see BidCandidate), read and written with plain SQL: no entities,
+ * no persistence context, no dirty checking.
+ * The write methods must be called in the transaction that changes the banners or categories,
+ * they flush the pending entity changes first, so the rows are built from the new state.
+ * */
+@Repository
+public class BidCandidateRepository {
+    private static final String INSERT_ACTIVE =
+            "INSERT INTO bid_candidate (request_id, banner_id, price, text) " +
+            "SELECT c.request_id, b.id, b.price, b.text FROM banner b " +
+            "JOIN banner_categories bc ON bc.banner_id = b.id " +
+            "JOIN category c ON c.id = bc.categories_id " +
+            "WHERE b.deleted = false AND c.deleted = false";
+    private static final String BANNERS_OF_CATEGORY = "SELECT banner_id FROM banner_categories WHERE categories_id = :categoryId";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final EntityManager entityManager;
+
+    public BidCandidateRepository(NamedParameterJdbcTemplate jdbc, EntityManager entityManager) {
+        this.jdbc = jdbc;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Rebuilds the rows of the given banners from their current state (no rows for a deleted banner).
+     * */
+    public void refreshBanners(Collection<Long> bannerIds) {
+        if (bannerIds.isEmpty()) {
+            return;
+        }
+        flushPending();
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", bannerIds);
+        jdbc.update("DELETE FROM bid_candidate WHERE banner_id IN (:ids)", params);
+        jdbc.update(INSERT_ACTIVE + " AND b.id IN (:ids)", params);
+    }
+
+    /**
+     * Rebuilds the rows of all banners of the category, e.g. after its requestId has changed or it was deleted.
+     * */
+    public void refreshCategory(Long categoryId) {
+        flushPending();
+        MapSqlParameterSource params = new MapSqlParameterSource("categoryId", categoryId);
+        jdbc.update("DELETE FROM bid_candidate WHERE banner_id IN (" + BANNERS_OF_CATEGORY + ")", params);
+        jdbc.update(INSERT_ACTIVE + " AND b.id IN (" + BANNERS_OF_CATEGORY + ")", params);
+    }
+
+    public void deleteBanners(Collection<Long> bannerIds) {
+        if (bannerIds.isEmpty()) {
+            return;
+        }
+        jdbc.update("DELETE FROM bid_candidate WHERE banner_id IN (:ids)", new MapSqlParameterSource("ids", bannerIds));
+    }
+
+    /**
+     * Builds the whole table from the banners and categories.
+     * @return number of rows
+     * */
+    public int rebuild() {
+        flushPending();
+        jdbc.update("DELETE FROM bid_candidate", Map.of());
+        return jdbc.update(INSERT_ACTIVE, Map.of());
+    }
+
+    private void flushPending() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            entityManager.flush();
+        }
+    }
+
+    /**
+     * All rows grouped by category requestId, in no particular order.
+     * */
+    public Map<String, List<BannerCandidate>> findAllByRequestId() {
+        Map<String, List<BannerCandidate>> grouped = new HashMap<>();
+        jdbc.query("SELECT request_id, banner_id, price, text FROM bid_candidate", resultSet -> {
+            grouped.computeIfAbsent(resultSet.getString(1), key -> new ArrayList<>())
+                    .add(new BannerCandidate(resultSet.getLong(2), resultSet.getDouble(3), resultSet.getString(4)));
+        });
+        return grouped;
+    }
+
+    /**
+     * The most expensive banner of the categories that has no request journal record
+     * for this IP and User-Agent within the given period, or null.
+     * The user is compared by the binary IP and the id of the User-Agent (see UserAgentDictionary).
+     * */
+    public BannerCandidate findTopUnseen(Collection<String> requestIds, byte[] ip, Integer userAgentId,
+                                         LocalDateTime startOfDay, LocalDateTime endOfDay) {
+        if (requestIds.isEmpty()) {
+            return null;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("requestIds", requestIds)
+                .addValue("ip", ip, Types.VARBINARY)
+                .addValue("userAgentId", userAgentId, Types.INTEGER)
+                .addValue("startOfDay", startOfDay)
+                .addValue("endOfDay", endOfDay);
+        List<BannerCandidate> found = jdbc.query(
+                "SELECT bc.banner_id, bc.price, bc.text FROM bid_candidate bc " +
+                "WHERE bc.request_id IN (:requestIds) " +
+                "AND NOT EXISTS (SELECT 1 FROM request_journal j WHERE j.banner_id = bc.banner_id " +
+                "AND j.ip = :ip " +
+                "AND (j.user_agent_id = :userAgentId OR (j.user_agent_id IS NULL AND :userAgentId IS NULL)) " +
+                "AND j.request_time BETWEEN :startOfDay AND :endOfDay) " +
+                "ORDER BY bc.price DESC, bc.banner_id LIMIT 1",
+                params,
+                (resultSet, row) -> new BannerCandidate(resultSet.getLong(1), resultSet.getDouble(2), resultSet.getString(3)));
+        return found.isEmpty() ? null : found.get(0);
+    }
+}
@@ -2,19 +2,51 @@ package com.example.asteriotest.repository;
 
 import com.example.asteriotest.model.Banner;
 import com.example.asteriotest.model.Category;
+import com.example.asteriotest.model.DTO.CategorySummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+// the point lookups of the admin requests are served from the query cache, see ehcache.xml
 @Repository
 public interface CategoriesRepository extends JpaRepository<Category, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     boolean existsById(Long id);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     boolean existsByName(String name);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     boolean existsByRequestId(String requestId);
 
-    Optional<List<Category>> findAllByNameContains(String name);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Category> findByName(String name);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Category> findByRequestId(String requestId);
+
+    List<Category> findAllByRequestIdIn(Collection<String> requestIds);
+
+    @Query("select c.name from Category c where c.name in :names")
+    List<String> findExistingNames(@Param("names") Collection<String> names);
+
+    @Query("select c.requestId from Category c where c.requestId in :requestIds")
+    List<String> findExistingRequestIds(@Param("requestIds") Collection<String> requestIds);
+
+    /**
+     * Keyset page of the admin search: categories with id > after whose name matches the pattern (lower case, "!" escapes % and _).
+     * */
+    @Query("select new com.example.asteriotest.model.DTO.CategorySummary(c.id, c.name, c.requestId) from Category c " +
+            "where lower(c.name) like :pattern escape '!' and c.id > :after order by c.id")
+    Stream<CategorySummary> searchPage(@Param("pattern") String pattern, @Param("after") Long after, Pageable limit);
+
+    @Query("select new com.example.asteriotest.model.DTO.CategorySummary(c.id, c.name, c.requestId) from Category c where c.deleted = false")
+    List<CategorySummary> findActiveSummaries();
 }
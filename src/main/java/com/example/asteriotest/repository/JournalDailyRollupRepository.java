@@ -0,0 +1,17 @@
+package com.example.asteriotest.repository;
+
+import com.example.asteriotest.model.JournalDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface JournalDailyRollupRepository extends JpaRepository<JournalDailyRollup, Long> {
+    boolean existsByDay(LocalDate day);
+
+    @Query("select max(r.day) from JournalDailyRollup r")
+    Optional<LocalDate> findLastRolledUpDay();
+}
@@ -1,16 +1,61 @@
 package com.example.asteriotest.repository;
 
 import com.example.asteriotest.model.Banner;
+import com.example.asteriotest.model.DTO.JournalDayAggregate;
+import com.example.asteriotest.model.DTO.JournalRow;
+import com.example.asteriotest.model.DTO.ShownBannerRow;
 import com.example.asteriotest.model.RequestJournal;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface RequestJournalRepository extends JpaRepository<RequestJournal, Long> {
-    Optional<RequestJournal> findByBannerAndIpAddressAndUserAgent(Banner banner, String ipAddress, String userAgent);
+    Optional<RequestJournal> findByBannerAndIpAndUserAgentIdAndRequestTimeBetween(Banner banner, byte[] ip, Integer userAgentId, LocalDateTime startOfDay, LocalDateTime endOfDay);
 
-    Optional<RequestJournal> findByBannerAndIpAddressAndUserAgentAndRequestTimeBetween(Banner banner, String ipAddress, String userAgent, LocalDateTime startOfDay, LocalDateTime endOfDay);
+    @Query("select j.banner.id as bannerId, j.ip as ip, j.userAgentId as userAgentId, u.userAgent as userAgent, j.requestTime as requestTime " +
+            "from RequestJournal j left join UserAgent u on u.id = j.userAgentId " +
+            "where j.banner is not null and j.requestTime >= :from")
+    Stream<ShownBannerRow> findShownBannersSince(@Param("from") LocalDateTime from);
+
+    @Query("select j.banner.id as bannerId, j.ip as ip, j.userAgentId as userAgentId, u.userAgent as userAgent, j.requestTime as requestTime " +
+            "from RequestJournal j left join UserAgent u on u.id = j.userAgentId " +
+            "where j.banner is not null order by j.id desc")
+    List<ShownBannerRow> findRecentShownBanners(Pageable limit);
+
+    @Query("select j.banner.id as bannerId, j.ip as ip, j.userAgentId as userAgentId, u.userAgent as userAgent, j.requestTime as requestTime " +
+            "from RequestJournal j left join UserAgent u on u.id = j.userAgentId " +
+            "where j.banner.id in :bannerIds and j.ip in :ips " +
+            "and j.requestTime between :startOfDay and :endOfDay")
+    List<ShownBannerRow> findShownBanners(@Param("bannerIds") Collection<Long> bannerIds,
+                                          @Param("ips") Collection<byte[]> ips,
+                                          @Param("startOfDay") LocalDateTime startOfDay,
+                                          @Param("endOfDay") LocalDateTime endOfDay);
+
+    @Query("select j.banner.id as bannerId, " +
+            "sum(case when j.banner is not null then 1 else 0 end) as impressions, " +
+            "sum(j.bannerPrice) as revenue, " +
+            "sum(case when j.errorCode is not null then 1 else 0 end) as errorCount " +
+            "from RequestJournal j where j.requestTime >= :from and j.requestTime < :to group by j.banner.id")
+    List<JournalDayAggregate> aggregateByBanner(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("select min(j.requestTime) from RequestJournal j")
+    Optional<LocalDateTime> findFirstRequestTime();
+
+    @Query("select j.id from RequestJournal j where j.requestTime < :before order by j.id")
+    List<Long> findIdsBefore(@Param("before") LocalDateTime before, Pageable limit);
+
+    @Query("select j.id as id, j.ip as ip, u.userAgent as userAgent, j.requestTime as requestTime, " +
+            "j.banner.id as bannerId, j.bannerPrice as bannerPrice, j.errorCode as errorCode " +
+            "from RequestJournal j left join UserAgent u on u.id = j.userAgentId " +
+            "where j.requestTime < :before order by j.id")
+    List<JournalRow> findRowsBefore(@Param("before") LocalDateTime before, Pageable limit);
 }
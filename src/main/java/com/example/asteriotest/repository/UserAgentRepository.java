@@ -0,0 +1,15 @@
+package com.example.asteriotest.repository;
+
+import com.example.asteriotest.model.UserAgent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface UserAgentRepository extends JpaRepository<UserAgent, Integer> {
+    @Query("select u.id from UserAgent u where u.digest = :digest")
+    Optional<Integer> findIdByDigest(@Param("digest") byte[] digest);
+}
@@ -0,0 +1,77 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.Banner;
+import com.example.asteriotest.model.Category;
+import com.example.asteriotest.model.DTO.BannerSummary;
+import com.example.asteriotest.model.DTO.CategorySummary;
+import com.example.asteriotest.repository.BannerRepository;
+import com.example.asteriotest.repository.CategoriesRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Search indexes of the admin requests: active banners by name, active categories by name and requestId,
+ * see NameSearchIndex. The indexes are loaded from the database on startup
+ * and then kept in sync by BannerManagerService, CategoryManagerService and ImportService,
+ * which report every committed change. Changes made by other application instances are seen after a restart.
+ * */
+@Component
+public class AdminNameIndex {
+    private final BannerRepository bannerRepo;
+    private final CategoriesRepository categoriesRepo;
+    private final NameSearchIndex banners = new NameSearchIndex();
+    private final NameSearchIndex categories = new NameSearchIndex();
+    private final Logger logger = Logger.getLogger(AdminNameIndex.class.getName());
+
+    public AdminNameIndex(BannerRepository bannerRepo, CategoriesRepository categoriesRepo) {
+        this.bannerRepo = bannerRepo;
+        this.categoriesRepo = categoriesRepo;
+    }
+
+    @PostConstruct
+    public void load() {
+        banners.clear();
+        categories.clear();
+        for (BannerSummary banner : bannerRepo.findActiveSummaries()) {
+            banners.put(banner.getId(), banner.getName());
+        }
+        for (CategorySummary category : categoriesRepo.findActiveSummaries()) {
+            categories.put(category.getId(), category.getName(), category.getRequestId());
+        }
+        logger.info("Admin search index loaded, banners: " + banners.size() + ", categories: " + categories.size());
+    }
+
+    public List<Long> searchBanners(String query, boolean prefixOnly, int limit) {
+        return banners.search(query, prefixOnly, limit);
+    }
+
+    public List<Long> searchCategories(String query, boolean prefixOnly, int limit) {
+        return categories.search(query, prefixOnly, limit);
+    }
+
+    public void bannerSaved(Banner banner) {
+        if (banner.isDeleted()) {
+            banners.remove(banner.getId());
+        } else {
+            banners.put(banner.getId(), banner.getNameBanner());
+        }
+    }
+
+    public void bannersDeleted(Collection<Long> ids) {
+        for (Long id : ids) {
+            banners.remove(id);
+        }
+    }
+
+    public void categorySaved(Category category) {
+        if (category.isDeleted()) {
+            categories.remove(category.getId());
+        } else {
+            categories.put(category.getId(), category.getName(), category.getRequestId());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.DTO.BannerCategoryIdRow;
+import com.example.asteriotest.model.DTO.BannerSummary;
+import com.example.asteriotest.model.DTO.CategorySummary;
+import com.example.asteriotest.model.DTO.SearchPage;
+import com.example.asteriotest.repository.BannerRepository;
+import com.example.asteriotest.repository.CategoriesRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Paginated admin search of banners and categories by a part of the name, not case sensitive.
+ * Pages are ordered by id and addressed by the last id of the previous page (keyset pagination),
+ * so a page costs the same at any depth. Only the rows of one page are read, as lightweight DTOs.
+ * */
+@Service
+public class AdminSearchService {
+    private final BannerRepository bannerRepo;
+    private final CategoriesRepository categoriesRepo;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public AdminSearchService(BannerRepository bannerRepo, CategoriesRepository categoriesRepo,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${search.page-size.default:20}") int defaultPageSize,
+                              @Value("${search.page-size.max:100}") int maxPageSize) {
+        this.bannerRepo = bannerRepo;
+        this.categoriesRepo = categoriesRepo;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    public SearchPage<BannerSummary> searchBanners(String name, Long after, Integer size) {
+        SearchPage<BannerSummary> page = page(name, after, size,
+                (pattern, limit) -> bannerRepo.searchPage(pattern, after == null ? 0L : after, limit), BannerSummary::getId);
+
+        if (!page.getItems().isEmpty()) { // category ids of the whole page with one query
+            Map<Long, BannerSummary> byId = new HashMap<>();
+            for (BannerSummary banner : page.getItems()) {
+                byId.put(banner.getId(), banner);
+            }
+            for (BannerCategoryIdRow row : bannerRepo.findCategoryIds(byId.keySet())) {
+                byId.get(row.getBannerId()).getCategoryIds().add(row.getCategoryId());
+            }
+        }
+        return page;
+    }
+
+    public SearchPage<CategorySummary> searchCategories(String name, Long after, Integer size) {
+        return page(name, after, size,
+                (pattern, limit) -> categoriesRepo.searchPage(pattern, after == null ? 0L : after, limit), CategorySummary::getId);
+    }
+
+    private interface PageQuery<T> {
+        Stream<T> find(String pattern, Pageable limit);
+    }
+
+    /**
+     * Reads one row more than the page size to know whether there is a next page.
+     * */
+    private <T> SearchPage<T> page(String name, Long after, Integer size, PageQuery<T> query, Function<T, Long> id) {
+        if (name == null || name.isBlank()) { //If the parameter is empty, stop execution
+            throw new IllegalArgumentException("Search name cannot be empty");
+        }
+        int pageSize = size == null || size < 1 ? defaultPageSize : Math.min(size, maxPageSize);
+        String pattern = "%" + escapeLike(name.toLowerCase()) + "%";
+
+        List<T> items = readOnlyTransaction.execute(status -> {
+            try (Stream<T> rows = query.find(pattern, Pageable.ofSize(pageSize + 1))) {
+                return rows.toList();
+            }
+        });
+
+        if (items.size() > pageSize) {
+            List<T> pageItems = items.subList(0, pageSize);
+            return new SearchPage<>(pageItems, id.apply(pageItems.get(pageSize - 1)));
+        }
+        return new SearchPage<>(items, null);
+    }
+
+    /** "%" and "_" typed by the user are searched as they are, "!" is the escape character of the queries */
+    private static String escapeLike(String text) {
+        return text.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.DTO.BannerCandidate;
+import com.example.asteriotest.repository.BidCandidateRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * In-memory catalog of active banners used by the /bid request, read from the bid_candidate table.
+ * For each category requestId it keeps an array of banners sorted by price (the most expensive first).
+ * The catalog is an immutable snapshot, it is rebuilt from the database and replaced as a whole
+ * after every committed change of banners or categories, so readers never see a half-built state.
+ * The merged candidates of a set of several categories are kept in a bounded cache,
+ * so a repeated combination of categories is not merged and sorted again.
+ * With the weighted rotation the alias table of every new array is built along with it, see WeightedRotation.
+ * */
+@Component
+public class BannerCatalog {
+    static final Comparator<BannerCandidate> BY_PRICE_DESC =
+            Comparator.comparingDouble(BannerCandidate::getPrice).reversed()
+                    .thenComparing(BannerCandidate::getId);
+
+    private static final BannerCandidate[] EMPTY = new BannerCandidate[0];
+
+    private final BidCandidateRepository candidateRepo;
+    private final WeightedRotation rotation;
+    private final TransactionTemplate transaction;
+    private final boolean rebuildTableOnStartup;
+    private final Logger logger = Logger.getLogger(BannerCatalog.class.getName());
+
+    private volatile Map<String, BannerCandidate[]> byRequestId = Map.of();
+    private final Cache<List<String>, MergedCandidates> merged;
+
+    public BannerCatalog(BidCandidateRepository candidateRepo, WeightedRotation rotation, PlatformTransactionManager transactionManager,
+                         @Value("${bid.candidate-cache.max-size:10000}") long candidateCacheSize,
+                         @Value("${bid.candidate-table.rebuild-on-startup:true}") boolean rebuildTableOnStartup) {
+        this.candidateRepo = candidateRepo;
+        this.rotation = rotation;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.rebuildTableOnStartup = rebuildTableOnStartup;
+        this.merged = Caffeine.newBuilder()
+                .maximumSize(candidateCacheSize)
+                .recordStats()
+                .build();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (rebuildTableOnStartup) { // e.g. the first start with the table, or banners changed by hand in the database
+            Integer rows = transaction.execute(status -> candidateRepo.rebuild());
+            logger.info("bid_candidate table rebuilt, rows: " + rows);
+        }
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        logger.info("Banner catalog is rebuilt: " + event.getReason());
+        rebuild();
+    }
+
+    /**
+     * Reads all rows of the bid_candidate table with one query and swaps the snapshot.
+     * The array of a category whose banners have not changed is taken from the old snapshot,
+     * the cached merges of the changed categories are invalidated.
+     * Synchronized so that two concurrent rebuilds cannot publish an older snapshot last.
+     * */
+    public synchronized void rebuild() {
+        Map<String, List<BannerCandidate>> grouped = candidateRepo.findAllByRequestId();
+
+        Map<String, BannerCandidate[]> previous = byRequestId;
+        Map<String, BannerCandidate[]> snapshot = new HashMap<>(grouped.size() * 2);
+        Set<String> changed = new HashSet<>(previous.keySet());
+        changed.removeAll(grouped.keySet()); // categories that lost all banners
+        for (Map.Entry<String, List<BannerCandidate>> entry : grouped.entrySet()) {
+            BannerCandidate[] banners = entry.getValue().toArray(EMPTY);
+            Arrays.sort(banners, BY_PRICE_DESC);
+
+            BannerCandidate[] old = previous.get(entry.getKey());
+            if (old != null && sameBanners(old, banners)) {
+                banners = old;
+            } else {
+                changed.add(entry.getKey());
+                rotation.precompute(banners);
+            }
+            snapshot.put(entry.getKey(), banners);
+        }
+
+        byRequestId = Collections.unmodifiableMap(snapshot);
+        if (!changed.isEmpty()) {
+            merged.asMap().keySet().removeIf(key -> !Collections.disjoint(key, changed));
+        }
+    }
+
+    /**
+     * Banners attached to at least one of the requested categories, sorted by price (the most expensive first).
+     * A banner attached to several of the requested categories is returned once.
+     * The returned array is shared and must not be modified.
+     * */
+    public BannerCandidate[] candidates(List<String> requestIds) {
+        Map<String, BannerCandidate[]> snapshot = byRequestId;
+
+        if (requestIds.size() == 1) { // the most common case, the array is already sorted
+            return snapshot.getOrDefault(requestIds.get(0), EMPTY);
+        }
+
+        List<String> key = normalize(requestIds);
+        if (key.size() == 1) {
+            return snapshot.getOrDefault(key.get(0), EMPTY);
+        }
+
+        MergedCandidates cached = merged.getIfPresent(key);
+        if (cached != null && cached.isBuiltFrom(snapshot, key)) {
+            return cached.banners;
+        }
+        // missing, or merged from arrays that were replaced by a rebuild in the meantime
+        MergedCandidates built = merge(snapshot, key);
+        rotation.precompute(built.banners);
+        merged.put(key, built);
+        return built.banners;
+    }
+
+    /**
+     * The current snapshot: requestId of an active category - its active banners, the most expensive first.
+     * The arrays are shared and must not be modified.
+     * */
+    public Map<String, BannerCandidate[]> snapshot() {
+        return byRequestId;
+    }
+
+    Cache<List<String>, MergedCandidates> mergedCache() {
+        return merged;
+    }
+
+    /** Sorted requestIds without duplicates, the cache key of a set of categories */
+    private static List<String> normalize(List<String> requestIds) {
+        return List.copyOf(new TreeSet<>(requestIds));
+    }
+
+    private static MergedCandidates merge(Map<String, BannerCandidate[]> snapshot, List<String> requestIds) {
+        BannerCandidate[][] sources = new BannerCandidate[requestIds.size()][];
+        int total = 0;
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = snapshot.getOrDefault(requestIds.get(i), EMPTY);
+            total += sources[i].length;
+        }
+        if (total == 0) {
+            return new MergedCandidates(sources, EMPTY);
+        }
+
+        BannerCandidate[] merged = new BannerCandidate[total];
+        int position = 0;
+        for (BannerCandidate[] banners : sources) {
+            System.arraycopy(banners, 0, merged, position, banners.length);
+            position += banners.length;
+        }
+        Arrays.sort(merged, BY_PRICE_DESC);
+
+        // after sorting by (price, id) the same banner from different categories stands side by side
+        int unique = 0;
+        for (BannerCandidate banner : merged) {
+            if (unique == 0 || !merged[unique - 1].getId().equals(banner.getId())) {
+                merged[unique++] = banner;
+            }
+        }
+        return new MergedCandidates(sources, unique == merged.length ? merged : Arrays.copyOf(merged, unique));
+    }
+
+    private static boolean sameBanners(BannerCandidate[] a, BannerCandidate[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        for (int i = 0; i < a.length; i++) {
+            if (!a[i].getId().equals(b[i].getId()) || a[i].getPrice() != b[i].getPrice()
+                    || !Objects.equals(a[i].getText(), b[i].getText())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Merged candidates of a set of categories and the per-category arrays they were merged from.
+     * Unchanged categories keep their arrays across rebuilds, so comparing the references
+     * tells whether the entry is still valid for the current snapshot.
+     * */
+    static final class MergedCandidates {
+        private final BannerCandidate[][] sources;
+        private final BannerCandidate[] banners;
+
+        MergedCandidates(BannerCandidate[][] sources, BannerCandidate[] banners) {
+            this.sources = sources;
+            this.banners = banners;
+        }
+
+        boolean isBuiltFrom(Map<String, BannerCandidate[]> snapshot, List<String> requestIds) {
+            for (int i = 0; i < sources.length; i++) {
+                if (snapshot.getOrDefault(requestIds.get(i), EMPTY) != sources[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -1,39 +1,107 @@
 package com.example.asteriotest.services;
 
 import com.example.asteriotest.exception.bannerExceptions.BannerAlreadyExistsException;
-import com.example.asteriotest.exception.bannerExceptions.BannerAlreadyShownException;
 import com.example.asteriotest.exception.bannerExceptions.BannerNotFoundException;
 import com.example.asteriotest.exception.bannerExceptions.InsertedCategoryDoesNotExist;
 import com.example.asteriotest.model.Banner;
 import com.example.asteriotest.model.Category;
+import com.example.asteriotest.model.DTO.BannerCandidate;
 import com.example.asteriotest.model.DTO.BannerDTO;
+import com.example.asteriotest.model.DTO.BidRequestItem;
+import com.example.asteriotest.model.DTO.BidResult;
+import com.example.asteriotest.model.DTO.BidResponseItem;
+import com.example.asteriotest.model.DTO.ShownBannerRow;
+import com.example.asteriotest.model.JournalError;
 import com.example.asteriotest.model.RequestJournal;
 import com.example.asteriotest.repository.BannerRepository;
+import com.example.asteriotest.repository.BidCandidateRepository;
 import com.example.asteriotest.repository.CategoriesRepository;
 import com.example.asteriotest.repository.RequestJournalRepository;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.RequestParam;
 
-import java.time.LocalDate;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Service
 public class BannerManagerService {
+    private static final String ALREADY_SHOWN = JournalError.ALREADY_SHOWN.getMessage();
+    private static final String NOT_FOUND = JournalError.NOT_FOUND.getMessage();
+    // the 204 items of a batch answer are always the same
+    private static final BidResponseItem ALREADY_SHOWN_ITEM = new BidResponseItem(HttpStatus.NO_CONTENT.value(), ALREADY_SHOWN);
+    private static final BidResponseItem NOT_FOUND_ITEM = new BidResponseItem(HttpStatus.NO_CONTENT.value(), NOT_FOUND);
+
     private final CategoriesRepository categoriesRepo;
     private final BannerRepository bannerRepo;
+    private final BidCandidateRepository candidateRepo;
     private final RequestJournalRepository journalRepo;
+    private final BannerCatalog bannerCatalog;
+    private final FrequencyCapEngine frequencyCap;
+    private final WeightedRotation rotation;
+    private final JournalWriter journalWriter;
+    private final UserAgentDictionary userAgents;
+    private final CalendarDay calendarDay;
+    private final BidMetrics bidMetrics;
+    private final BannerStatsService bannerStats;
+    private final DatabaseAccessLimiter databaseLimiter;
+    private final EntityCacheEvictor cacheEvictor;
+    private final AdminNameIndex nameIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+    private final BidSelectionStrategy selectionStrategy;
+    private final BidCharge charge;
+    private final int maxBatchSize;
+    private final int maxSearchResults;
 
     private final Logger logger = Logger.getLogger(BannerManagerService.class.getName());
 
-    public BannerManagerService(CategoriesRepository categoriesRepo, BannerRepository bannerRepo, RequestJournalRepository journalRepo) {
+    public BannerManagerService(CategoriesRepository categoriesRepo, BannerRepository bannerRepo, BidCandidateRepository candidateRepo,
+                                RequestJournalRepository journalRepo,
+                                BannerCatalog bannerCatalog, FrequencyCapEngine frequencyCap, WeightedRotation rotation,
+                                JournalWriter journalWriter,
+                                UserAgentDictionary userAgents, CalendarDay calendarDay, BidMetrics bidMetrics,
+                                BannerStatsService bannerStats,
+                                DatabaseAccessLimiter databaseLimiter, EntityCacheEvictor cacheEvictor, AdminNameIndex nameIndex,
+                                ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                                @Value("${bid.selection-strategy:IN_MEMORY}") BidSelectionStrategy selectionStrategy,
+                                @Value("${bid.charge:FIRST_PRICE}") BidCharge charge,
+                                @Value("${bid.batch.max-size:1000}") int maxBatchSize,
+                                @Value("${search.index.max-results:100}") int maxSearchResults) {
         this.categoriesRepo = categoriesRepo;
         this.bannerRepo = bannerRepo;
+        this.candidateRepo = candidateRepo;
         this.journalRepo = journalRepo;
+        this.bannerCatalog = bannerCatalog;
+        this.frequencyCap = frequencyCap;
+        this.rotation = rotation;
+        this.journalWriter = journalWriter;
+        this.userAgents = userAgents;
+        this.calendarDay = calendarDay;
+        this.bidMetrics = bidMetrics;
+        this.bannerStats = bannerStats;
+        this.databaseLimiter = databaseLimiter;
+        this.cacheEvictor = cacheEvictor;
+        this.nameIndex = nameIndex;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.selectionStrategy = selectionStrategy;
+        this.charge = charge;
+        this.maxBatchSize = maxBatchSize;
+        this.maxSearchResults = maxSearchResults;
+        if (rotation.isEnabled() && selectionStrategy == BidSelectionStrategy.DATABASE) {
+            logger.warning("bid.rotation=WEIGHTED applies to the IN_MEMORY selection strategy only, "
+                    + "the DATABASE strategy serves the most expensive banner");
+        }
     }
 
     /**
@@ -46,15 +114,23 @@ public class BannerManagerService {
             throw new BannerAlreadyExistsException("ERROR 409: Banner with this name already exists");
         }
 
-        Set<Category> categories = new HashSet<>(banner.getCategories());
-        for (Category category : categories) {
-            if (!categoriesRepo.existsById(category.getId())) {
-                logger.info("One of the categories does not exist");
-                throw new InsertedCategoryDoesNotExist("ERROR 404: The category inserted into the banner does not exist");
-            }
+        Set<Long> categoriesId = new HashSet<>();
+        for (Category category : banner.getCategories()) {
+            categoriesId.add(category.getId());
+        }
+        // one query for all categories, a missing (or deleted) one is not returned
+        if (categoriesId.contains(null) || categoriesRepo.findAllById(categoriesId).size() != categoriesId.size()) {
+            logger.info("One of the categories does not exist");
+            throw new InsertedCategoryDoesNotExist("ERROR 404: The category inserted into the banner does not exist");
         }
 
-        bannerRepo.save(banner);
+        // the banner and its bid_candidate rows are saved together
+        transaction.executeWithoutResult(status -> {
+            bannerRepo.save(banner);
+            candidateRepo.refreshBanners(List.of(banner.getId()));
+        });
+        nameIndex.bannerSaved(banner);
+        eventPublisher.publishEvent(new CatalogChangedEvent("banner added"));
         logger.info("Banner has been created");
         return "Banner has been created with properties: " + banner.toString();
     }
@@ -80,7 +156,13 @@ public class BannerManagerService {
              * */
 
             banner.setNameBanner(banner.getNameBanner() + " # Deleted: " + new Date());
-            bannerRepo.save(banner);
+            transaction.executeWithoutResult(status -> {
+                bannerRepo.save(banner);
+                candidateRepo.deleteBanners(List.of(banner.getId()));
+            });
+            cacheEvictor.bannerDeleted(banner.getId());
+            nameIndex.bannerSaved(banner);
+            eventPublisher.publishEvent(new CatalogChangedEvent("banner deleted"));
 
             return "Banner " + banner.getNameBanner() + " has been deleted";
         } else {
@@ -91,22 +173,33 @@ public class BannerManagerService {
 
     /**
      *  Banner search request.
-     *  The method is not case sensitive.
+     *  The method is not case sensitive. The matching active banners are found in the in-memory index (see AdminNameIndex),
+     *  the best search.index.max-results of them are loaded with one query and returned in the order of the ranking.
+     *  With prefixOnly only the banners whose name starts with the parameter are returned.
      */
-    public List<Banner> searchBanner(String name) {
+    public List<Banner> searchBanner(String name, boolean prefixOnly) {
         if (name == null || name.isBlank()) { //If the parameter is empty, stop execution
             throw new IllegalArgumentException("Category name cannot be empty");
         }
 
-        name = name.toLowerCase();
+        List<Long> ids = nameIndex.searchBanners(name, prefixOnly, maxSearchResults);
 
-        Optional<List<Banner>> banners = bannerRepo.findAllByNameBannerContains(name);
-
-        if (banners.isEmpty()) {
+        if (ids.isEmpty()) {
             throw new BannerNotFoundException("Category with this name does not exist");
         }
 
-        return banners.get();
+        Map<Long, Banner> byId = new HashMap<>();
+        for (Banner banner : bannerRepo.findAllById(ids)) {
+            byId.put(banner.getId(), banner);
+        }
+        List<Banner> banners = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Banner banner = byId.get(id);
+            if (banner != null) { // deleted in the meantime
+                banners.add(banner);
+            }
+        }
+        return banners;
     }
 
     //DTO is used. If you use the original banner,
@@ -133,13 +226,15 @@ public class BannerManagerService {
 
         if (bannerRepo.existsById(banner.getId())) { // check if the banner exists
             Set<Long> categoriesId = bannerDTO.getCategoriesId();
-            for (Long id : categoriesId) {
-                Optional<Category> category = categoriesRepo.findById(id);
-                if (category.isPresent()) { // Accepted category id is inserted into the updated banner
-                    banner.putCategory(category.get());
-                }
+            for (Category category : categoriesRepo.findAllById(categoriesId)) { // Accepted categories are inserted into the updated banner
+                banner.putCategory(category);
             }
-            bannerRepo.save(banner);
+            transaction.executeWithoutResult(status -> {
+                bannerRepo.save(banner);
+                candidateRepo.refreshBanners(List.of(banner.getId()));
+            });
+            nameIndex.bannerSaved(banner);
+            eventPublisher.publishEvent(new CatalogChangedEvent("banner updated"));
             logger.info("Banner has been edited");
             return "Banner has been edited";
         } else {
@@ -153,73 +248,328 @@ public class BannerManagerService {
      * If the banner matches at least ONE of the query categories,
      * its TEXT is returned as a response.
      * If several banners match the query parameters, the one with the highest PRICE is returned
+     * (or a random one of the most expensive, see BidRotation)
      * The HTTP request log is also recorded,
      * the banner (and attached categories) is recorded,
-     * as well as information about the source of the request
+     * as well as information about the source of the request.
+     * The log record is written in the background, see JournalWriter.
+     * "Nothing to show" is a result, not an exception, see BidResult
      * */
-    public String bid(HttpServletRequest servletRequest, @RequestParam("cat") List<String> categories) {
-
+    public BidResult bid(HttpServletRequest servletRequest, @RequestParam("cat") List<String> categories) {
+        return bid(servletRequest.getRemoteAddr(), servletRequest.getHeader("User-Agent"), categories);
+    }
 
-        Optional<List<Banner>> optionalBanners = bannerRepo.findAllByCategories_requestIdIn(categories); // Looking for banners by category
-        String userAgent = servletRequest.getHeader("User-Agent");
-        String ip = servletRequest.getRemoteAddr();
+    public BidResult bid(String ip, String userAgent, List<String> categories) {
+        BannerCandidate[] banners = findCandidates(categories); // Looking for banners by category, sorted by price
 
-        if (optionalBanners.get().size() > 0) { // Check if there is at least one banner
+        if (banners.length > 0) { // Check if there is at least one banner
+            BannerCandidate finalBanner = selectUnseen(banners, categories, ip, userAgent);
+            return completeBid(ip, userAgent, true, finalBanner);
+        } else {
+            return completeBid(ip, userAgent, false, null);
+        }
+    }
 
-            //sort banners by price
-            List<Banner> banners = optionalBanners.get();
-            Comparator<Banner> priceComparator = Comparator.comparing(Banner::getPrice);
-            Collections.sort(banners, priceComparator);
+    /**
+     * The work of bid() without its effects, for the startup warm-up (see BidWarmup):
+     * the banner is chosen by the same selection strategy and rotation, but no impression is counted,
+     * no journal record is written, metrics and statistics are not updated. The DATABASE strategy only reads:
+     * the User-Agent id is looked up, never inserted (see UserAgentDictionary.find).
+     * @return the banner bid() would serve to the user now, or null
+     * */
+    public BannerCandidate dryRunBid(String ip, String userAgent, List<String> categories) {
+        BannerCandidate[] banners = bannerCatalog.candidates(categories);
+        if (banners.length == 0) {
+            return null;
+        }
+        BannerCandidate finalBanner;
+        if (selectionStrategy == BidSelectionStrategy.DATABASE) {
+            finalBanner = findUnseenInDatabase(categories, ip, userAgent); // read only
+        } else if (rotation.isEnabled() && banners.length > 1) {
+            WeightedRotation.AliasTable table = rotation.tableOf(banners);
+            finalBanner = frequencyCap.peek(ip, userAgent, banners, table.size(), table::sample);
+        } else {
+            finalBanner = frequencyCap.peek(ip, userAgent, banners, 0, null);
+        }
+        return charged(banners, finalBanner);
+    }
 
-            // get request parameters
-            LocalDate today = LocalDate.now();
-            LocalDateTime startOfDay = today.atStartOfDay();
-            LocalDateTime endOfDay = today.atTime(23, 59, 59);
+    /**
+     * Several bid requests at once, for servers that collect them (server-side ad insertion).
+     * Every request gets the same answer as /bid, but the work is shared:
+     * candidates are looked up once per distinct set of categories,
+     * the DATABASE strategy checks all users with one journal query,
+     * and the journal records of the whole batch are queued together.
+     * @throws IllegalArgumentException if the batch is too large, an item is null, has no valid ip
+     * or one of its categories is null or blank; nothing of the batch is served then
+     * */
+    public List<BidResponseItem> bidBatch(List<BidRequestItem> requests) {
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("ERROR 400: batch is limited to " + maxBatchSize + " requests");
+        }
+        byte[][] ips = new byte[requests.size()][];
+        for (int i = 0; i < requests.size(); i++) {
+            BidRequestItem request = requests.get(i);
+            if (request == null) {
+                throw new IllegalArgumentException("ERROR 400: request " + i + " of the batch is null");
+            }
+            ips[i] = IpAddresses.toBytes(request.getIp());
+            if (ips[i] == null) { // could be neither journaled nor capped
+                throw new IllegalArgumentException("ERROR 400: request " + i + " of the batch has no valid ip");
+            }
+            if (request.getCat() != null) {
+                for (String category : request.getCat()) {
+                    if (category == null || category.isBlank()) {
+                        throw new IllegalArgumentException("ERROR 400: request " + i + " of the batch has an empty category");
+                    }
+                }
+            }
+        }
 
-            Banner finalBanner = null;
-            for (Banner current : banners) {
+        Map<List<String>, BannerCandidate[]> lookups = new HashMap<>();
+        BannerCandidate[][] candidates = new BannerCandidate[requests.size()][];
+        for (int i = 0; i < requests.size(); i++) {
+            List<String> categories = requests.get(i).getCat();
+            List<String> key = categories == null ? List.of() : List.copyOf(new TreeSet<>(categories));
+            candidates[i] = lookups.computeIfAbsent(key, this::findCandidates);
+        }
 
-                /*
-                 * Search parameters: IP and User-agent are the same as the current one, the record was made within 24 hours
-                 * */
-                Optional<RequestJournal> journalRecord = journalRepo.findByBannerAndIpAddressAndUserAgentAndRequestTimeBetween(current, ip, userAgent, startOfDay, endOfDay);
-                if (journalRecord.isEmpty()) { // Checking if a banner with these properties has been shown before (if yes, it was logged)
-                    logger.info("now banner" + current.getNameBanner() + " is finalBanner");
-                    finalBanner = current; // Choosing a banner
+        long stageStart = System.nanoTime();
+        BannerCandidate[] finalBanners;
+        if (usesDatabaseForSelection()) {
+            finalBanners = findUnseenInDatabase(requests, ips, candidates);
+        } else {
+            finalBanners = new BannerCandidate[requests.size()];
+            for (int i = 0; i < requests.size(); i++) {
+                BidRequestItem request = requests.get(i);
+                finalBanners[i] = findUnseenInMemory(candidates[i], request.getIp(), request.getUserAgent());
+            }
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            finalBanners[i] = charged(candidates[i], finalBanners[i]);
+        }
+        bidMetrics.selectionDone(stageStart);
+
+        stageStart = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        List<RequestJournal> records = new ArrayList<>(requests.size());
+        List<BidResponseItem> responses = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            BidRequestItem request = requests.get(i);
+            BannerCandidate finalBanner = finalBanners[i];
+            if (finalBanner != null) {
+                records.add(new RequestJournal(ips[i], request.getUserAgent(), now,
+                        bannerRepo.getReferenceById(finalBanner.getId()), finalBanner.getPrice()));
+                responses.add(new BidResponseItem(HttpStatus.OK.value(), finalBanner.getText()));
+                bidMetrics.served();
+                bannerStats.served(finalBanner.getId(), finalBanner.getPrice());
+            } else {
+                JournalError error = candidates[i].length > 0 ? JournalError.ALREADY_SHOWN : JournalError.NOT_FOUND;
+                records.add(new RequestJournal(ips[i], request.getUserAgent(), now, error));
+                responses.add(error == JournalError.ALREADY_SHOWN ? ALREADY_SHOWN_ITEM : NOT_FOUND_ITEM);
+                if (candidates[i].length > 0) {
+                    bidMetrics.alreadyShown();
+                    bannerStats.alreadyShown();
+                } else {
+                    bidMetrics.notFound();
+                    bannerStats.notFound();
                 }
             }
+        }
+        journalWriter.writeAll(records);
+        bidMetrics.journalWritten(stageStart);
+
+        return responses;
+    }
+
+    /**
+     * The first stage of the bid: banners of the requested categories, the most expensive first.
+     * Does not block, the banners come from the in-memory catalog.
+     * */
+    public BannerCandidate[] findCandidates(List<String> categories) {
+        long stageStart = System.nanoTime();
+        BannerCandidate[] banners = bannerCatalog.candidates(categories);
+        bidMetrics.candidatesFound(banners.length, stageStart);
+        return banners;
+    }
+
+    /**
+     * The second stage of the bid: the banner that can still be shown to the user, or null.
+     * The price of the returned banner is the price to record, see BidCharge.
+     * Blocks on the database only with the DATABASE selection strategy, see usesDatabaseForSelection()
+     * */
+    public BannerCandidate selectUnseen(BannerCandidate[] banners, List<String> categories, String ip, String userAgent) {
+        long stageStart = System.nanoTime();
+        BannerCandidate finalBanner = selectionStrategy == BidSelectionStrategy.DATABASE
+                ? findUnseenInDatabase(categories, ip, userAgent)
+                : findUnseenInMemory(banners, ip, userAgent);
+        finalBanner = charged(banners, finalBanner);
+        bidMetrics.selectionDone(stageStart);
+        return finalBanner;
+    }
+
+    public boolean usesDatabaseForSelection() {
+        return selectionStrategy == BidSelectionStrategy.DATABASE;
+    }
+
+    /**
+     * The last stage of the bid: the request is logged and the result is returned,
+     * the "204" results are shared instances.
+     * Blocks only if the journal queue is full, see JournalWriter
+     * */
+    public BidResult completeBid(String ip, String userAgent, boolean hadCandidates, BannerCandidate finalBanner) {
+        if (hadCandidates) {
 
             // If there is no matching banner, returns error 204
             if (finalBanner == null) {
-                String errorBanner = "ERROR 204: This banner has already been shown to this user before";
-                logger.info(errorBanner);
+                String errorBanner = ALREADY_SHOWN;
+                logger.fine(errorBanner);
 
-                RequestJournal log = new RequestJournal(ip, userAgent,
-                        LocalDateTime.now(), errorBanner);
+                long stageStart = System.nanoTime();
+                RequestJournal log = new RequestJournal(IpAddresses.toBytes(ip), userAgent,
+                        LocalDateTime.now(), JournalError.ALREADY_SHOWN);
 
-                journalRepo.save(log);
+                journalWriter.write(log);
+                bidMetrics.journalWritten(stageStart);
+                bidMetrics.alreadyShown();
+                bannerStats.alreadyShown();
 
-                throw new BannerAlreadyShownException("ERROR 204: This banner has already been shown to this user before");
+                return BidResult.ALREADY_SHOWN;
             }
 
 
-            RequestJournal log = new RequestJournal(ip, userAgent,
-                    LocalDateTime.now(), finalBanner,
+            // the reference is enough for the foreign key, the banner itself is not loaded
+            long stageStart = System.nanoTime();
+            RequestJournal log = new RequestJournal(IpAddresses.toBytes(ip), userAgent,
+                    LocalDateTime.now(), bannerRepo.getReferenceById(finalBanner.getId()),
                     finalBanner.getPrice());
 
-            journalRepo.save(log);
+            journalWriter.write(log);
+            bidMetrics.journalWritten(stageStart);
+            bidMetrics.served();
+            bannerStats.served(finalBanner.getId(), finalBanner.getPrice());
 
-            return finalBanner.getText();
+            return new BidResult.Served(finalBanner);
         } else {
-            String errorBody = "ERROR 204: banner with this category not found";
-            logger.info(errorBody);
+            String errorBody = NOT_FOUND;
+            logger.fine(errorBody);
 
-            RequestJournal log = new RequestJournal(ip, userAgent,
-                    LocalDateTime.now(), errorBody);
+            long stageStart = System.nanoTime();
+            RequestJournal log = new RequestJournal(IpAddresses.toBytes(ip), userAgent,
+                    LocalDateTime.now(), JournalError.NOT_FOUND);
 
-            journalRepo.save(log);
+            journalWriter.write(log);
+            bidMetrics.journalWritten(stageStart);
+            bidMetrics.notFound();
+            bannerStats.notFound();
+
+            return BidResult.NO_CANDIDATES;
+        }
+    }
 
-            throw new BannerNotFoundException(errorBody);
+    /**
+     * IN_MEMORY strategy: the first (the most expensive) candidate that passes the frequency cap,
+     * or with the weighted rotation a candidate drawn from the alias table of the most expensive ones.
+     * */
+    private BannerCandidate findUnseenInMemory(BannerCandidate[] banners, String ip, String userAgent) {
+        /*
+         * The frequency cap counts impressions of the banner to this IP and User-agent within the configured window,
+         * if the banner can still be shown, the impression is counted right away
+         * */
+        BannerCandidate finalBanner;
+        if (rotation.isEnabled() && banners.length > 1) {
+            WeightedRotation.AliasTable table = rotation.tableOf(banners);
+            finalBanner = frequencyCap.tryRecordSampled(ip, userAgent, banners, table.size(), table::sample);
+        } else {
+            finalBanner = frequencyCap.tryRecordFirst(ip, userAgent, banners);
+        }
+        if (finalBanner != null && logger.isLoggable(Level.FINE)) { // do not build the message when it is not logged
+            logger.fine("now banner " + finalBanner.getId() + " is finalBanner");
         }
+        return finalBanner;
+    }
+
+    /**
+     * DATABASE strategy: one query, the most expensive banner without a journal record for this user today.
+     * The User-Agent id is looked up within the database permit, an unknown string (UserAgentDictionary.UNKNOWN)
+     * matches no record. Nothing is inserted, the journal writer adds new strings to the dictionary.
+     * */
+    private BannerCandidate findUnseenInDatabase(List<String> categories, String ip, String userAgent) {
+        CalendarDay.Day today = calendarDay.today();
+        byte[] ipBytes = IpAddresses.toBytes(ip);
+        return databaseLimiter.call(() -> candidateRepo.findTopUnseen(categories, ipBytes, userAgents.find(userAgent),
+                today.start(), today.end()));
+    }
+
+    /**
+     * DATABASE strategy for a batch: one query for the banners shown today to the users of the batch.
+     * A banner chosen for a request counts as shown for the next requests of the same user in the batch.
+     * A User-Agent that is not in the dictionary yet has no records, its requests are keyed by the string.
+     * */
+    private BannerCandidate[] findUnseenInDatabase(List<BidRequestItem> requests, byte[][] ips, BannerCandidate[][] candidates) {
+        Set<Long> bannerIds = new HashSet<>();
+        Map<ByteBuffer, byte[]> distinctIps = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (candidates[i].length > 0) {
+                distinctIps.putIfAbsent(ByteBuffer.wrap(ips[i]), ips[i]);
+                for (BannerCandidate candidate : candidates[i]) {
+                    bannerIds.add(candidate.getId());
+                }
+            }
+        }
+
+        // the user is the binary IP and the User-Agent id, the rows are matched without the User-Agent strings
+        Map<List<Object>, Set<Long>> shownByUser = new HashMap<>();
+        if (!bannerIds.isEmpty()) {
+            CalendarDay.Day today = calendarDay.today();
+            List<ShownBannerRow> shown = databaseLimiter.call(() -> journalRepo.findShownBanners(bannerIds, distinctIps.values(),
+                    today.start(), today.end()));
+            for (ShownBannerRow row : shown) {
+                shownByUser.computeIfAbsent(userKey(row.getIp(), row.getUserAgentId()), key -> new HashSet<>())
+                        .add(row.getBannerId());
+            }
+        }
+
+        Map<String, Object> agentKeys = new HashMap<>();
+        BannerCandidate[] finalBanners = new BannerCandidate[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            if (candidates[i].length == 0) {
+                continue;
+            }
+            String userAgent = requests.get(i).getUserAgent();
+            Object agentKey = userAgent == null ? null : agentKeys.computeIfAbsent(userAgent, agent -> {
+                Integer id = userAgents.find(agent);
+                return id == UserAgentDictionary.UNKNOWN ? agent : id;
+            });
+            Set<Long> shown = shownByUser.computeIfAbsent(userKey(ips[i], agentKey), key -> new HashSet<>());
+            for (BannerCandidate candidate : candidates[i]) {
+                if (shown.add(candidate.getId())) { // not shown yet, now it is
+                    finalBanners[i] = candidate;
+                    break;
+                }
+            }
+        }
+        return finalBanners;
+    }
+
+    /**
+     * The served banner with the price to record. For the second price the banner is found
+     * in the sorted candidates by binary search, the next one is the next lower bid.
+     * A banner missing from the candidates (the DATABASE strategy saw a newer catalog) keeps its own price.
+     * */
+    private BannerCandidate charged(BannerCandidate[] banners, BannerCandidate finalBanner) {
+        if (charge == BidCharge.FIRST_PRICE || finalBanner == null) {
+            return finalBanner;
+        }
+        int index = Arrays.binarySearch(banners, finalBanner, BannerCatalog.BY_PRICE_DESC);
+        if (index < 0 || index + 1 == banners.length) {
+            return finalBanner;
+        }
+        return finalBanner.withPrice(banners[index + 1].getPrice());
+    }
+
+    // the User-Agent is its id, or the string itself if it is not in the dictionary yet
+    private static List<Object> userKey(byte[] ip, Object userAgent) {
+        return Arrays.asList(ip == null ? null : ByteBuffer.wrap(ip), userAgent);
     }
 }
@@ -0,0 +1,317 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.BannerDailyStats;
+import com.example.asteriotest.model.DTO.BannerCandidate;
+import com.example.asteriotest.model.DTO.BannerStats;
+import com.example.asteriotest.model.DTO.BannerStatsRow;
+import com.example.asteriotest.model.DTO.CategoryStats;
+import com.example.asteriotest.model.DTO.StatsReport;
+import com.example.asteriotest.repository.BannerDailyStatsRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Impressions, revenue and 204 answers per banner per day, counted by the bid requests themselves,
+ * so reports never read the request journal.
+ * The counters of the recent days (yesterday and today, see memoryFrom) are kept in memory as LongAdder/DoubleAdder,
+ * which do not block concurrent bids. They are cumulative: a periodic flush adds what was counted since the previous
+ * flush to banner_daily_stats, older days are then dropped from memory and read from the table.
+ * On startup the counters of the recent days are loaded from the table.
+ * The flush adds with UPDATE ... SET impressions = impressions + ?, so instances flushing at the same time
+ * (e.g. during a rolling restart) do not overwrite each other's counts. The recent days of the reports come
+ * from the counters of this instance only: what was in the table at its start and its own requests since.
+ * */
+@Service
+public class BannerStatsService {
+    private static final String ADD_TO_DAY = "UPDATE banner_daily_stats SET impressions = impressions + ?, revenue = revenue + ?, " +
+            "already_shown = already_shown + ?, not_found = not_found + ? WHERE banner_id = ? AND stats_day = ?";
+
+    private final BannerDailyStatsRepository statsRepo;
+    private final BannerCatalog bannerCatalog;
+    private final CalendarDay calendarDay;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaction;
+    private final int maxReportDays;
+    private final Logger logger = Logger.getLogger(BannerStatsService.class.getName());
+
+    private final ConcurrentMap<LocalDate, ConcurrentMap<Long, DayCounters>> days = new ConcurrentHashMap<>();
+    // the first day whose counters are complete in memory, the days before it are reported from the table
+    private volatile LocalDate memoryFrom;
+
+    public BannerStatsService(BannerDailyStatsRepository statsRepo, BannerCatalog bannerCatalog, CalendarDay calendarDay,
+                              JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+                              @Value("${stats.report.max-days:366}") int maxReportDays) {
+        this.statsRepo = statsRepo;
+        this.bannerCatalog = bannerCatalog;
+        this.calendarDay = calendarDay;
+        this.jdbc = jdbc;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.maxReportDays = maxReportDays;
+    }
+
+    @PostConstruct
+    public void init() {
+        memoryFrom = calendarDay.today().date().minusDays(1);
+        for (BannerDailyStats stored : statsRepo.findAllByDayGreaterThanEqual(memoryFrom)) {
+            counters(stored.getDay(), stored.getBannerId()).load(stored);
+        }
+    }
+
+    public void served(long bannerId, double price) {
+        DayCounters counters = counters(calendarDay.today().date(), bannerId);
+        counters.impressions.increment();
+        counters.revenue.add(price);
+    }
+
+    public void alreadyShown() {
+        counters(calendarDay.today().date(), BannerDailyStats.NO_BANNER).alreadyShown.increment();
+    }
+
+    public void notFound() {
+        counters(calendarDay.today().date(), BannerDailyStats.NO_BANNER).notFound.increment();
+    }
+
+    private DayCounters counters(LocalDate day, long bannerId) {
+        return days.computeIfAbsent(day, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(bannerId, key -> new DayCounters());
+    }
+
+    /**
+     * Writes the increments since the previous flush, one transaction per day.
+     * A failed day is written with the next flush.
+     * */
+    @Scheduled(fixedDelayString = "${stats.flush-interval-ms:10000}", initialDelayString = "${stats.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        boolean complete = true;
+        for (Map.Entry<LocalDate, ConcurrentMap<Long, DayCounters>> day : days.entrySet()) {
+            try {
+                flushDay(day.getKey(), day.getValue());
+            } catch (RuntimeException exc) {
+                complete = false;
+                logger.log(Level.WARNING, "Failed to flush the banner counters of " + day.getKey(), exc);
+            }
+        }
+
+        LocalDate recent = calendarDay.today().date().minusDays(1);
+        if (complete && recent.isAfter(memoryFrom)) {
+            memoryFrom = recent; // the reports read the older days from the table from now on
+            days.keySet().removeIf(day -> day.isBefore(recent));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    private void flushDay(LocalDate day, Map<Long, DayCounters> banners) {
+        Map<Long, Delta> deltas = new HashMap<>();
+        for (Map.Entry<Long, DayCounters> banner : banners.entrySet()) {
+            Delta delta = banner.getValue().delta();
+            if (!delta.isEmpty()) {
+                deltas.put(banner.getKey(), delta);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        createMissingRows(day, deltas.keySet());
+        List<Object[]> increments = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, Delta> entry : deltas.entrySet()) {
+            Delta delta = entry.getValue();
+            increments.add(new Object[]{delta.impressions, delta.revenue, delta.alreadyShown, delta.notFound, entry.getKey(), day});
+        }
+        transaction.executeWithoutResult(status -> jdbc.batchUpdate(ADD_TO_DAY, increments));
+        deltas.values().forEach(Delta::committed);
+    }
+
+    /**
+     * Inserts zero rows for the banners that have no row of the day yet, each on its own:
+     * a row inserted by another instance in the meantime is rejected by uk_stats_banner_day and is just used.
+     * */
+    private void createMissingRows(LocalDate day, Set<Long> bannerIds) {
+        Set<Long> missing = new HashSet<>(bannerIds);
+        missing.removeAll(statsRepo.findBannerIdsByDay(day, bannerIds));
+        for (Long bannerId : missing) {
+            try {
+                transaction.executeWithoutResult(status -> statsRepo.saveAndFlush(new BannerDailyStats(bannerId, day)));
+            } catch (DataIntegrityViolationException exc) {
+                logger.fine("Banner counters of " + day + " for banner " + bannerId + " created by another instance");
+            }
+        }
+    }
+
+    public StatsReport<BannerStats> bannerReport(LocalDate from, LocalDate to) {
+        Map<Long, Totals> byBanner = totals(from, to);
+        Totals all = sum(byBanner);
+
+        List<BannerStats> items = new ArrayList<>(byBanner.size());
+        for (Map.Entry<Long, Totals> banner : byBanner.entrySet()) {
+            if (banner.getKey() != BannerDailyStats.NO_BANNER) {
+                items.add(new BannerStats(banner.getKey(), banner.getValue().impressions, banner.getValue().revenue));
+            }
+        }
+        items.sort(Comparator.comparingDouble(BannerStats::getRevenue).reversed().thenComparing(BannerStats::getBannerId));
+        return new StatsReport<>(from, to, all.impressions, all.revenue, all.alreadyShown, all.notFound, items);
+    }
+
+    /**
+     * Per-category split of the banner totals by the current categories of the active banners (see BannerCatalog).
+     * */
+    public StatsReport<CategoryStats> categoryReport(LocalDate from, LocalDate to) {
+        Map<Long, Totals> byBanner = totals(from, to);
+        Totals all = sum(byBanner);
+
+        List<CategoryStats> items = new ArrayList<>();
+        for (Map.Entry<String, BannerCandidate[]> category : bannerCatalog.snapshot().entrySet()) {
+            long impressions = 0;
+            double revenue = 0;
+            for (BannerCandidate banner : category.getValue()) {
+                Totals totals = byBanner.get(banner.getId());
+                if (totals != null) {
+                    impressions += totals.impressions;
+                    revenue += totals.revenue;
+                }
+            }
+            items.add(new CategoryStats(category.getKey(), impressions, revenue));
+        }
+        items.sort(Comparator.comparingDouble(CategoryStats::getRevenue).reversed().thenComparing(CategoryStats::getRequestId));
+        return new StatsReport<>(from, to, all.impressions, all.revenue, all.alreadyShown, all.notFound, items);
+    }
+
+    private Map<Long, Totals> totals(LocalDate from, LocalDate to) {
+        if (to.isBefore(from) || from.plusDays(maxReportDays).isBefore(to.plusDays(1))) {
+            throw new IllegalArgumentException("ERROR 400: the report period must be from 1 to " + maxReportDays + " days");
+        }
+
+        Map<Long, Totals> byBanner = new HashMap<>();
+        LocalDate inMemory = memoryFrom;
+        if (from.isBefore(inMemory)) {
+            LocalDate storedTo = to.isBefore(inMemory) ? to : inMemory.minusDays(1);
+            for (BannerStatsRow row : statsRepo.sumByBanner(from, storedTo)) {
+                byBanner.computeIfAbsent(row.getBannerId(), key -> new Totals())
+                        .add(row.getImpressions(), row.getRevenue(), row.getAlreadyShown(), row.getNotFound());
+            }
+        }
+        for (Map.Entry<LocalDate, ConcurrentMap<Long, DayCounters>> day : days.entrySet()) {
+            if (day.getKey().isBefore(inMemory) || day.getKey().isBefore(from) || day.getKey().isAfter(to)) {
+                continue;
+            }
+            for (Map.Entry<Long, DayCounters> banner : day.getValue().entrySet()) {
+                DayCounters counters = banner.getValue();
+                byBanner.computeIfAbsent(banner.getKey(), key -> new Totals()).add(counters.impressions.sum(),
+                        counters.revenue.sum(), counters.alreadyShown.sum(), counters.notFound.sum());
+            }
+        }
+        return byBanner;
+    }
+
+    private static Totals sum(Map<Long, Totals> byBanner) {
+        Totals all = new Totals();
+        for (Totals totals : byBanner.values()) {
+            all.add(totals.impressions, totals.revenue, totals.alreadyShown, totals.notFound);
+        }
+        return all;
+    }
+
+    private static final class Totals {
+        private long impressions;
+        private double revenue;
+        private long alreadyShown;
+        private long notFound;
+
+        void add(long impressions, double revenue, long alreadyShown, long notFound) {
+            this.impressions += impressions;
+            this.revenue += revenue;
+            this.alreadyShown += alreadyShown;
+            this.notFound += notFound;
+        }
+    }
+
+    /**
+     * Counters of one banner for one day. The adders are updated by the bid requests,
+     * the "flushed" values only by flush(), which is synchronized.
+     * */
+    private static final class DayCounters {
+        private final LongAdder impressions = new LongAdder();
+        private final DoubleAdder revenue = new DoubleAdder();
+        private final LongAdder alreadyShown = new LongAdder();
+        private final LongAdder notFound = new LongAdder();
+
+        private long flushedImpressions;
+        private double flushedRevenue;
+        private long flushedAlreadyShown;
+        private long flushedNotFound;
+
+        void load(BannerDailyStats stored) {
+            impressions.add(stored.getImpressions());
+            revenue.add(stored.getRevenue());
+            alreadyShown.add(stored.getAlreadyShown());
+            notFound.add(stored.getNotFound());
+            flushedImpressions += stored.getImpressions();
+            flushedRevenue += stored.getRevenue();
+            flushedAlreadyShown += stored.getAlreadyShown();
+            flushedNotFound += stored.getNotFound();
+        }
+
+        Delta delta() {
+            return new Delta(this, impressions.sum(), revenue.sum(), alreadyShown.sum(), notFound.sum());
+        }
+    }
+
+    /**
+     * Increments of one banner since the previous flush, read once so that the written values
+     * and the new "flushed" values are the same numbers.
+     * */
+    private static final class Delta {
+        private final DayCounters counters;
+        private final long impressionsTotal;
+        private final double revenueTotal;
+        private final long alreadyShownTotal;
+        private final long notFoundTotal;
+        private final long impressions;
+        private final double revenue;
+        private final long alreadyShown;
+        private final long notFound;
+
+        Delta(DayCounters counters, long impressionsTotal, double revenueTotal, long alreadyShownTotal, long notFoundTotal) {
+            this.counters = counters;
+            this.impressionsTotal = impressionsTotal;
+            this.revenueTotal = revenueTotal;
+            this.alreadyShownTotal = alreadyShownTotal;
+            this.notFoundTotal = notFoundTotal;
+            this.impressions = impressionsTotal - counters.flushedImpressions;
+            this.revenue = revenueTotal - counters.flushedRevenue;
+            this.alreadyShown = alreadyShownTotal - counters.flushedAlreadyShown;
+            this.notFound = notFoundTotal - counters.flushedNotFound;
+        }
+
+        boolean isEmpty() {
+            return impressions == 0 && revenue == 0 && alreadyShown == 0 && notFound == 0;
+        }
+
+        void committed() {
+            counters.flushedImpressions = impressionsTotal;
+            counters.flushedRevenue = revenueTotal;
+            counters.flushedAlreadyShown = alreadyShownTotal;
+            counters.flushedNotFound = notFoundTotal;
+        }
+    }
+}
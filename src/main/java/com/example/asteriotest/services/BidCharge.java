@@ -0,0 +1,16 @@
+package com.example.asteriotest.services;
+
+/**
+ * Which price of a served banner is recorded in the request journal and in the banner statistics.
+ * */
+public enum BidCharge {
+    /**
+     * The price of the banner itself.
+     * */
+    FIRST_PRICE,
+    /**
+     * The price of the next cheaper candidate of the request (the next lower bid, whether the user has seen it or not),
+     * or the price of the banner itself if it was the cheapest candidate.
+     * */
+    SECOND_PRICE
+}
@@ -0,0 +1,108 @@
+package com.example.asteriotest.services;
+
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the /bid request.
+ * bid.stage - time of every stage of BannerManagerService.bid() (tag "stage"), with percentile histograms;
+ * bid.outcome - number of bids by result (tag "reason": served, already_shown, not_found);
+ * bid.candidates - number of candidate banners per request.
+ * The state of the journal writer, the frequency cap and the database limiter is exported as gauges,
+ * the cache of merged candidates as the "bid.candidate-sets" cache (cache.gets, cache.evictions...).
+ * */
+@Component
+public class BidMetrics {
+    public static final String STAGE_CANDIDATES = "candidates";
+    public static final String STAGE_SELECTION = "selection";
+    public static final String STAGE_JOURNAL = "journal";
+
+    private final Timer candidatesTimer;
+    private final Timer selectionTimer;
+    private final Timer journalTimer;
+    private final Counter served;
+    private final Counter alreadyShown;
+    private final Counter notFound;
+    private final DistributionSummary candidates;
+
+    public BidMetrics(MeterRegistry registry, JournalWriter journalWriter, FrequencyCapEngine frequencyCap,
+                      DatabaseAccessLimiter databaseLimiter, BannerCatalog catalog) {
+        candidatesTimer = stageTimer(registry, STAGE_CANDIDATES);
+        selectionTimer = stageTimer(registry, STAGE_SELECTION);
+        journalTimer = stageTimer(registry, STAGE_JOURNAL);
+
+        served = outcomeCounter(registry, "served");
+        alreadyShown = outcomeCounter(registry, "already_shown");
+        notFound = outcomeCounter(registry, "not_found");
+
+        candidates = DistributionSummary.builder("bid.candidates")
+                .description("Candidate banners per bid request")
+                .publishPercentileHistogram()
+                .register(registry);
+
+        Gauge.builder("journal.writer.pending", journalWriter, JournalWriter::pending)
+                .description("Request journal records waiting in the queue")
+                .register(registry);
+        FunctionCounter.builder("journal.writer.written", journalWriter, JournalWriter::writtenCount)
+                .register(registry);
+        FunctionCounter.builder("journal.writer.dropped", journalWriter, JournalWriter::droppedCount)
+                .register(registry);
+        FunctionCounter.builder("journal.writer.failed", journalWriter, JournalWriter::failedCount)
+                .register(registry);
+        Gauge.builder("bid.frequency-cap.users", frequencyCap, FrequencyCapEngine::trackedUsers)
+                .description("Users tracked by the frequency cap")
+                .register(registry);
+        FunctionCounter.builder("bid.frequency-cap.untracked", frequencyCap, FrequencyCapEngine::untrackedCount)
+                .description("Requests served without the frequency cap because max-users was reached")
+                .register(registry);
+        Gauge.builder("bid.db.limiter.in-use", databaseLimiter, DatabaseAccessLimiter::inUse)
+                .register(registry);
+        Gauge.builder("bid.db.limiter.waiting", databaseLimiter, DatabaseAccessLimiter::waiting)
+                .description("Threads waiting for a database permit")
+                .register(registry);
+        CaffeineCacheMetrics.monitor(registry, catalog.mergedCache(), "bid.candidate-sets");
+    }
+
+    private static Timer stageTimer(MeterRegistry registry, String stage) {
+        return Timer.builder("bid.stage")
+                .description("Time of one stage of the bid request")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Counter outcomeCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("bid.outcome")
+                .description("Bid requests by result")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    public void candidatesFound(int count, long startNanos) {
+        candidatesTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        candidates.record(count);
+    }
+
+    public void selectionDone(long startNanos) {
+        selectionTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void journalWritten(long startNanos) {
+        journalTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void served() {
+        served.increment();
+    }
+
+    public void alreadyShown() {
+        alreadyShown.increment();
+    }
+
+    public void notFound() {
+        notFound.increment();
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.asteriotest.services;
+
+/**
+ * Which of the banners that the user has not seen yet /bid serves.
+ * */
+public enum BidRotation {
+    /**
+     * The most expensive one.
+     * */
+    HIGHEST_PRICE,
+    /**
+     * A random one of the bid.rotation.top-bidders most expensive candidates, with a probability proportional to its price.
+     * If the user has seen all of them, the most expensive of the remaining candidates.
+     * Applies to the IN_MEMORY selection strategy, the DATABASE strategy always serves the most expensive banner.
+     * */
+    WEIGHTED
+}
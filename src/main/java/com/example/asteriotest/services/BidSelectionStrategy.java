@@ -0,0 +1,18 @@
+package com.example.asteriotest.services;
+
+/**
+ * How /bid finds the most expensive banner that the user has not seen yet.
+ * */
+public enum BidSelectionStrategy {
+    /**
+     * Candidates come from the in-memory banner catalog, shown banners are checked by the in-memory frequency cap.
+     * The database is not queried.
+     * */
+    IN_MEMORY,
+    /**
+     * One query with an anti-join against the request journal and LIMIT 1.
+     * Applies the original rule (one impression of a banner per calendar day) and ignores the frequency cap settings.
+     * Journal records that the background writer has not flushed yet are not visible to the query.
+     * */
+    DATABASE
+}
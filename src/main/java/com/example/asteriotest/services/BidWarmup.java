@@ -0,0 +1,177 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.DTO.BannerCandidate;
+import com.example.asteriotest.model.DTO.ShownBannerRow;
+import com.example.asteriotest.repository.BannerRepository;
+import com.example.asteriotest.repository.CategoriesRepository;
+import com.example.asteriotest.repository.RequestJournalRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Warm-up of the bid path after startup, so the first requests do not pay for cold caches, connections and code.
+ * Runs as an ApplicationRunner: Spring Boot reports the instance ready (/actuator/health/readiness)
+ * only after all runners have finished, so a load balancer that checks readiness sends no traffic before the warm-up is done.
+ * The steps:
+ * - the entities of the active categories and of the recently served banners are loaded into the second-level cache,
+ * - the connection pool is filled up to its minimum idle size,
+ * - the most recent requests of the journal are replayed through the bid selection (BannerManagerService.dryRunBid),
+ *   which counts no impressions and writes nothing.
+ * The journal does not keep the requested categories, a replayed request asks for the categories of the banner served to it.
+ * A failed step is logged and skipped, the warm-up never stops the application from starting.
+ * */
+@Component
+public class BidWarmup implements ApplicationRunner {
+    private final BannerManagerService bannerManagerService;
+    private final BannerCatalog bannerCatalog;
+    private final RequestJournalRepository journalRepo;
+    private final CategoriesRepository categoriesRepo;
+    private final BannerRepository bannerRepo;
+    private final DataSource dataSource;
+    private final boolean enabled;
+    private final int sampleSize;
+    private final int rounds;
+    private final long maxDurationMs;
+    private final Logger logger = Logger.getLogger(BidWarmup.class.getName());
+
+    public BidWarmup(BannerManagerService bannerManagerService, BannerCatalog bannerCatalog,
+                     RequestJournalRepository journalRepo, CategoriesRepository categoriesRepo, BannerRepository bannerRepo,
+                     DataSource dataSource,
+                     @Value("${bid.warmup.enabled:true}") boolean enabled,
+                     @Value("${bid.warmup.sample-size:2000}") int sampleSize,
+                     @Value("${bid.warmup.rounds:3}") int rounds,
+                     @Value("${bid.warmup.max-duration-ms:60000}") long maxDurationMs) {
+        this.bannerManagerService = bannerManagerService;
+        this.bannerCatalog = bannerCatalog;
+        this.journalRepo = journalRepo;
+        this.categoriesRepo = categoriesRepo;
+        this.bannerRepo = bannerRepo;
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.sampleSize = sampleSize;
+        this.rounds = rounds;
+        this.maxDurationMs = maxDurationMs;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long deadline = start + maxDurationMs;
+
+        List<ShownBannerRow> sample = List.of();
+        try {
+            sample = journalRepo.findRecentShownBanners(PageRequest.of(0, sampleSize));
+        } catch (RuntimeException e) {
+            logger.warning("Warm-up: the request journal could not be read, no requests are replayed: " + e);
+        }
+
+        try {
+            preloadEntities(sample);
+        } catch (RuntimeException e) {
+            logger.warning("Warm-up: preloading of the entities failed: " + e);
+        }
+
+        try {
+            fillConnectionPool();
+        } catch (SQLException | RuntimeException e) {
+            logger.warning("Warm-up: filling of the connection pool failed: " + e);
+        }
+
+        int replayed = 0;
+        try {
+            replayed = replay(sample, deadline);
+        } catch (RuntimeException e) {
+            logger.warning("Warm-up: replay of the journal requests failed: " + e);
+        }
+        logger.info("Warm-up finished in " + (System.currentTimeMillis() - start) + " ms, "
+                + replayed + " bid requests replayed");
+    }
+
+    private void preloadEntities(List<ShownBannerRow> sample) {
+        Set<String> requestIds = bannerCatalog.snapshot().keySet();
+        int categories = requestIds.isEmpty() ? 0 : categoriesRepo.findAllByRequestIdIn(requestIds).size();
+
+        Set<Long> bannerIds = new HashSet<>();
+        for (ShownBannerRow row : sample) {
+            bannerIds.add(row.getBannerId());
+        }
+        int banners = bannerIds.isEmpty() ? 0 : bannerRepo.findAllById(bannerIds).size();
+        logger.info("Warm-up: " + categories + " active categories and " + banners + " recently served banners loaded");
+    }
+
+    /**
+     * Takes as many connections as the pool keeps idle at once, so all of them are opened now, then returns them.
+     * */
+    private void fillConnectionPool() throws SQLException {
+        if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+            return;
+        }
+        int size = dataSource.unwrap(HikariDataSource.class).getMinimumIdle();
+        List<Connection> connections = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                Connection connection = dataSource.getConnection();
+                connections.add(connection);
+                connection.isValid(1);
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+        logger.info("Warm-up: " + connections.size() + " database connections opened");
+    }
+
+    /**
+     * Replays the sample "rounds" times, or until the deadline.
+     * @return number of replayed requests
+     * */
+    private int replay(List<ShownBannerRow> sample, long deadline) {
+        if (sample.isEmpty()) {
+            return 0;
+        }
+        // requestIds of every banner of the sample, from the catalog
+        Map<Long, List<String>> categoriesOf = new HashMap<>();
+        for (ShownBannerRow row : sample) {
+            categoriesOf.put(row.getBannerId(), new ArrayList<>());
+        }
+        for (Map.Entry<String, BannerCandidate[]> entry : bannerCatalog.snapshot().entrySet()) {
+            for (BannerCandidate candidate : entry.getValue()) {
+                List<String> requestIds = categoriesOf.get(candidate.getId());
+                if (requestIds != null) {
+                    requestIds.add(entry.getKey());
+                }
+            }
+        }
+
+        int replayed = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (ShownBannerRow row : sample) {
+                if (System.currentTimeMillis() > deadline) {
+                    logger.warning("Warm-up: bid.warmup.max-duration-ms elapsed, the replay is stopped");
+                    return replayed;
+                }
+                List<String> categories = categoriesOf.get(row.getBannerId());
+                if (categories.isEmpty()) { // the banner is not active any more
+                    continue;
+                }
+                bannerManagerService.dryRunBid(IpAddresses.toString(row.getIp()), row.getUserAgent(), categories);
+                replayed++;
+            }
+        }
+        return replayed;
+    }
+}
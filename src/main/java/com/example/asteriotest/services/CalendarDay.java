@@ -0,0 +1,47 @@
+package com.example.asteriotest.services;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Today in the system time zone, cached for the bid path: the date and its bounds are computed once a day
+ * instead of creating LocalDate / LocalDateTime objects on every request.
+ * The day is an immutable snapshot, the first caller after midnight replaces it
+ * (two callers at the same moment both compute it, the result is the same).
+ * */
+@Component
+public class CalendarDay {
+    private final ZoneId zone = ZoneId.systemDefault();
+    private volatile Day current = Day.of(System.currentTimeMillis(), zone);
+
+    public Day today() {
+        Day day = current;
+        long now = System.currentTimeMillis();
+        if (now >= day.nextDayStartMillis() || now < day.startMillis()) { // midnight has passed, or the clock was set back
+            day = Day.of(now, zone);
+            current = day;
+        }
+        return day;
+    }
+
+    /**
+     * One calendar day and its bounds as the journal queries use them: from 00:00:00 to 23:59:59.
+     * */
+    public record Day(LocalDate date, LocalDateTime start, LocalDateTime end, long startMillis, long nextDayStartMillis) {
+
+        static Day of(long millis, ZoneId zone) {
+            LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+            return new Day(date, date.atStartOfDay(), date.atTime(23, 59, 59),
+                    date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+        }
+
+        public long epochDay() {
+            return date.toEpochDay();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.asteriotest.services;
+
+/**
+ * Published by the manager services whenever banners or categories are changed.
+ * Listeners are invoked after the surrounding transaction has been committed.
+ * */
+public class CatalogChangedEvent {
+    private final String reason;
+
+    public CatalogChangedEvent(String reason) {
+        this.reason = reason;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
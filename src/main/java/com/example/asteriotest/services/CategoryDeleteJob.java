@@ -0,0 +1,68 @@
+package com.example.asteriotest.services;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a category deletion that runs in the background, see CategoryManagerService.deleteCategoryInBackground().
+ * */
+public class CategoryDeleteJob {
+    public enum Status { RUNNING, DONE, FAILED }
+
+    private final String jobId;
+    private final Long categoryId;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final AtomicLong bannersDeleted = new AtomicLong();
+    private volatile Status status = Status.RUNNING;
+    private volatile LocalDateTime finishedAt;
+    private volatile String message;
+
+    CategoryDeleteJob(String jobId, Long categoryId) {
+        this.jobId = jobId;
+        this.categoryId = categoryId;
+    }
+
+    void bannersDeleted(long count) {
+        bannersDeleted.set(count);
+    }
+
+    void done(String message) {
+        this.message = message;
+        this.finishedAt = LocalDateTime.now();
+        this.status = Status.DONE;
+    }
+
+    void failed(String message) {
+        this.message = message;
+        this.finishedAt = LocalDateTime.now();
+        this.status = Status.FAILED;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getBannersDeleted() {
+        return bannersDeleted.get();
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
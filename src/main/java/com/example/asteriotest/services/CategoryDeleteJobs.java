@@ -0,0 +1,36 @@
+package com.example.asteriotest.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Category deletion jobs of this instance. Finished jobs are kept for the configured time, then forgotten.
+ * */
+@Component
+public class CategoryDeleteJobs {
+    private final Map<String, CategoryDeleteJob> jobs = new ConcurrentHashMap<>();
+    private final long keepFinishedMinutes;
+
+    public CategoryDeleteJobs(@Value("${category.delete.keep-finished-jobs-minutes:60}") long keepFinishedMinutes) {
+        this.keepFinishedMinutes = keepFinishedMinutes;
+    }
+
+    CategoryDeleteJob create(Long categoryId) {
+        LocalDateTime expired = LocalDateTime.now().minusMinutes(keepFinishedMinutes);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(expired));
+
+        CategoryDeleteJob job = new CategoryDeleteJob(UUID.randomUUID().toString(), categoryId);
+        jobs.put(job.getJobId(), job);
+        return job;
+    }
+
+    public Optional<CategoryDeleteJob> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+}
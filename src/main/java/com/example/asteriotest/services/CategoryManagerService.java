@@ -6,27 +6,59 @@ import com.example.asteriotest.exception.categoriesExceptions.DependentСategory
 import com.example.asteriotest.model.Banner;
 import com.example.asteriotest.model.Category;
 import com.example.asteriotest.repository.BannerRepository;
+import com.example.asteriotest.repository.BidCandidateRepository;
 import com.example.asteriotest.repository.CategoriesRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Date;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Service
 public class CategoryManagerService {
     private final CategoriesRepository categoriesRepo;
     private final BannerRepository bannerRepo;
+    private final BidCandidateRepository candidateRepo;
+    private final EntityCacheEvictor cacheEvictor;
+    private final AdminNameIndex nameIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CategoryDeleteJobs deleteJobs;
+    private final AsyncTaskExecutor taskExecutor;
+    private final TransactionTemplate transaction;
+    private final int deleteChunkSize;
+    private final int maxSearchResults;
     private final Logger logger = Logger.getLogger(BannerManagerService.class.getName());
 
     @Autowired
-    public CategoryManagerService(CategoriesRepository categoriesRepo, BannerRepository bannerRepo) {
+    public CategoryManagerService(CategoriesRepository categoriesRepo, BannerRepository bannerRepo, BidCandidateRepository candidateRepo,
+                                  EntityCacheEvictor cacheEvictor, AdminNameIndex nameIndex, ApplicationEventPublisher eventPublisher,
+                                  CategoryDeleteJobs deleteJobs,
+                                  @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${category.delete.chunk-size:1000}") int deleteChunkSize,
+                                  @Value("${search.index.max-results:100}") int maxSearchResults) {
         this.categoriesRepo = categoriesRepo;
         this.bannerRepo = bannerRepo;
+        this.candidateRepo = candidateRepo;
+        this.cacheEvictor = cacheEvictor;
+        this.nameIndex = nameIndex;
+        this.eventPublisher = eventPublisher;
+        this.deleteJobs = deleteJobs;
+        this.taskExecutor = taskExecutor;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.deleteChunkSize = deleteChunkSize;
+        this.maxSearchResults = maxSearchResults;
     }
 
     /**
@@ -42,6 +74,7 @@ public class CategoryManagerService {
         }
 
         categoriesRepo.save(category); // if the new category is unique, save it
+        nameIndex.categorySaved(category);
     }
 
     /**
@@ -49,6 +82,7 @@ public class CategoryManagerService {
      * A category can only be deleted if there are no dependent banners,
      * if there are dependent banners,
      * the category can ONLY be deleted if the request contains the parameter "cascadeRemove=true".
+     * Dependent banners are deleted with bulk updates of deleteChunkSize banners each.
      * */
     public String deleteCategory(Long id, Boolean cascadeRemove) {
         Optional<Category> toDelete = categoriesRepo.findById(id);
@@ -63,34 +97,14 @@ public class CategoryManagerService {
 
             String response = "Category " + category.getName() + " has been deleted";
             if (cascadeRemove) {
-                Optional<List<Banner>> bannersToDelete = bannerRepo.findAllByCategories_name(toDelete.get().getName());
-                if (bannersToDelete.get().size() > 0) {
-                    for (Banner banner : bannersToDelete.get()) {
-                        banner.setDeleted(true);
-                        banner.setNameBanner(banner.getNameBanner() + " # Deleted: " + new Date());
-                        bannerRepo.save(banner);
-                    }
+                if (deleteDependentBanners(category.getId(), deleted -> {}) > 0) {
                     response +=", removed all related banners along with it";
                 }
             } else {
                 throw new DependentСategoryException("The category cannot be deleted because other banners depend on it. Set \"true\" for the \"cascadeRemode\" parameter to remove all related banners.");
             }
 
-            /*
-             * If we delete a record logically, it is no longer considered in queries,
-             * while it is important for us to maintain uniqueness of new record names,
-             * we get a conflict: uniqueness check in controller does not know about records "deleted = false"
-             * and allows to save record, and then we get "duplicate" error.
-             * In this case, deleting changes the names of deleted records,
-             * this will avoid the "duplicate" error in the future.
-             * */
-
-            category.setDeleted(true);
-            category.setName(category.getName() + " # Deleted: " + new Date());
-            category.setRequestId(category.getRequestId() + " # Deleted: " + new Date());
-
-
-            categoriesRepo.save(category);
+            markDeleted(category);
             return response;
         } else {
             throw new CategoryNotFoundException("Removed category does not exist");
@@ -98,21 +112,114 @@ public class CategoryManagerService {
     }
 
     /**
-     * Search for a category by name. Not case sensitive
+     * The same as deleteCategory(id, true), but the banners and the category are deleted by a background job,
+     * the caller gets the job right away and can follow its progress by the job id.
+     * */
+    public CategoryDeleteJob deleteCategoryInBackground(Long id) {
+        Category category = categoriesRepo.findById(id)
+                .orElseThrow(() -> new CategoryNotFoundException("Removed category does not exist"));
+
+        CategoryDeleteJob job = deleteJobs.create(category.getId());
+        String name = category.getName(); // markDeleted() renames it
+        taskExecutor.execute(() -> {
+            try {
+                long deleted = deleteDependentBanners(category.getId(), job::bannersDeleted);
+                markDeleted(category);
+                job.done("Category " + name + " has been deleted, banners removed along with it: " + deleted);
+            } catch (RuntimeException exc) {
+                logger.log(Level.SEVERE, "Background deletion of category " + category.getId() + " failed", exc);
+                job.failed(exc.getMessage());
+            }
+        });
+        return job;
+    }
+
+    public Optional<CategoryDeleteJob> findDeleteJob(String jobId) {
+        return deleteJobs.find(jobId);
+    }
+
+    /**
+     * Logical deletion of all banners of the category, in chunks: the ids of the next chunk
+     * and one update statement for them, each chunk in its own short transaction.
+     * Deleted banners are no longer selected, so the loop ends when the category has no active banners.
+     * Every committed chunk is removed from the entity cache, the search index and the in-memory catalog right away,
+     * so the deleted banners are not served while the rest is being deleted, and neither after a failed chunk.
+     * @return number of deleted banners
+     * */
+    private long deleteDependentBanners(Long categoryId, LongConsumer progress) {
+        String suffix = " # Deleted: " + new Date(); // see markDeleted() for the reason
+        long deleted = 0;
+        while (true) {
+            List<Long> ids = bannerRepo.findIdsByCategory(categoryId, Pageable.ofSize(deleteChunkSize));
+            if (ids.isEmpty()) {
+                return deleted;
+            }
+            Integer updated = transaction.execute(status -> {
+                candidateRepo.deleteBanners(ids);
+                return bannerRepo.markDeleted(ids, suffix);
+            });
+            if (updated == null || updated == 0) { // deleted by someone else in the meantime
+                return deleted;
+            }
+            cacheEvictor.bannersDeleted(ids);
+            nameIndex.bannersDeleted(ids);
+            eventPublisher.publishEvent(new CatalogChangedEvent("banners of category " + categoryId + " deleted"));
+            deleted += updated;
+            progress.accept(deleted);
+        }
+    }
+
+    private void markDeleted(Category category) {
+        /*
+         * If we delete a record logically, it is no longer considered in queries,
+         * while it is important for us to maintain uniqueness of new record names,
+         * we get a conflict: uniqueness check in controller does not know about records "deleted = false"
+         * and allows to save record, and then we get "duplicate" error.
+         * In this case, deleting changes the names of deleted records,
+         * this will avoid the "duplicate" error in the future.
+         * */
+
+        category.setDeleted(true);
+        category.setName(category.getName() + " # Deleted: " + new Date());
+        category.setRequestId(category.getRequestId() + " # Deleted: " + new Date());
+
+
+        transaction.executeWithoutResult(status -> {
+            categoriesRepo.save(category);
+            candidateRepo.refreshCategory(category.getId());
+        });
+        cacheEvictor.categoryDeleted(category.getId());
+        nameIndex.categorySaved(category);
+        eventPublisher.publishEvent(new CatalogChangedEvent("category deleted"));
+    }
+
+    /**
+     * Search for a category by name or requestId. Not case sensitive.
+     * The best search.index.max-results matches of the in-memory index (see AdminNameIndex) are returned, best first
      * */
-    public List<Category> searchCategory(String name) throws IllegalArgumentException {
+    public List<Category> searchCategory(String name, boolean prefixOnly) throws IllegalArgumentException {
         if (name == null || name.isBlank()) { // If the parameter is empty, stop execution
             throw new IllegalArgumentException("Category name cannot be empty");
         }
 
-        name = name.toLowerCase();
-        Optional<List<Category>> categories = categoriesRepo.findAllByNameContains(name);
+        List<Long> ids = nameIndex.searchCategories(name, prefixOnly, maxSearchResults);
 
-        if (categories.isEmpty()) {
+        if (ids.isEmpty()) {
             throw new CategoryNotFoundException("Category with this name does not exist");
         }
 
-        return categories.get();
+        Map<Long, Category> byId = new HashMap<>();
+        for (Category category : categoriesRepo.findAllById(ids)) {
+            byId.put(category.getId(), category);
+        }
+        List<Category> categories = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Category category = byId.get(id);
+            if (category != null) { // deleted in the meantime
+                categories.add(category);
+            }
+        }
+        return categories;
 
     }
 
@@ -137,7 +244,12 @@ public class CategoryManagerService {
         }
 
         if (categoriesRepo.existsById(category.getId())) {
-            categoriesRepo.save(category);
+            transaction.executeWithoutResult(status -> { // a new requestId is written to the bid_candidate rows
+                categoriesRepo.save(category);
+                candidateRepo.refreshCategory(category.getId());
+            });
+            nameIndex.categorySaved(category);
+            eventPublisher.publishEvent(new CatalogChangedEvent("category updated"));
             logger.info("Category has been edited");
             return "Category has been edited";
         } else {
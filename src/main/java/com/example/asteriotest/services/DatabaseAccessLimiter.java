@@ -0,0 +1,49 @@
+package com.example.asteriotest.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of database calls of the bid path that run at the same time.
+ * By default the limit is the size of the connection pool: extra callers wait on the semaphore
+ * (a virtual thread waiting here releases its carrier thread) instead of queueing inside the pool and the JDBC driver.
+ * */
+@Component
+public class DatabaseAccessLimiter {
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    public DatabaseAccessLimiter(@Value("${bid.db.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    public <T> T call(Supplier<T> action) {
+        permits.acquireUninterruptibly();
+        try {
+            return action.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void run(Runnable action) {
+        permits.acquireUninterruptibly();
+        try {
+            action.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int inUse() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    public int waiting() {
+        return permits.getQueueLength();
+    }
+}
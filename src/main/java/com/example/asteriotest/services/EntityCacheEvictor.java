@@ -0,0 +1,49 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.Banner;
+import com.example.asteriotest.model.Category;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Removes logically deleted banners and categories from the Hibernate second-level cache.
+ * A logical delete is an update, so Hibernate keeps the deleted row in the entity cache,
+ * and @Where(clause = "deleted = false") is applied only when the row is read from the database:
+ * without the eviction findById() would still return the deleted record.
+ * Must be called after the delete is committed.
+ * */
+@Component
+public class EntityCacheEvictor {
+    private static final String BANNER_CATEGORIES = Banner.class.getName() + ".categories";
+    private static final String CATEGORY_BANNERS = Category.class.getName() + ".banners";
+
+    private final Cache cache;
+
+    public EntityCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    public void bannerDeleted(Long id) {
+        cache.evictEntityData(Banner.class, id);
+        cache.evictCollectionData(BANNER_CATEGORIES, id);
+        cache.evictCollectionData(CATEGORY_BANNERS); // the categories that still list the banner
+    }
+
+    public void bannersDeleted(Collection<Long> ids) {
+        for (Long id : ids) {
+            cache.evictEntityData(Banner.class, id);
+            cache.evictCollectionData(BANNER_CATEGORIES, id);
+        }
+        cache.evictCollectionData(CATEGORY_BANNERS);
+    }
+
+    public void categoryDeleted(Long id) {
+        cache.evictEntityData(Category.class, id);
+        cache.evictCollectionData(CATEGORY_BANNERS, id);
+        cache.evictCollectionData(BANNER_CATEGORIES); // the banners that still list the category
+    }
+}
@@ -0,0 +1,378 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.DTO.BannerCandidate;
+import com.example.asteriotest.model.DTO.ShownBannerRow;
+import com.example.asteriotest.repository.RequestJournalRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * In-memory frequency cap: how many times one banner may be shown to one user (IP + User-Agent)
+ * within the configured time window.
+ * For every user only the identifiers of shown banners are kept, grouped into time buckets
+ * (one bucket per day, or one bucket per hour for the sliding window).
+ * Buckets that left the window are reused, users without live buckets are removed by a periodic sweep,
+ * so the memory depends on the number of users active within one window, not on the uptime.
+ * bid.frequency-cap.max-users is a hard limit: once that many users are tracked, a new user is served without a cap
+ * (fail open, nothing is remembered) until the next sweep frees space. Such requests are counted by untrackedCount().
+ * The sweep runs only on the scheduler thread, a request never scans the map.
+ * On startup the cap is restored from the request journal.
+ * A user is keyed the way the journal stores it: the binary IP (so every text form of an IPv6 address is one user,
+ * a string that is not an IP literal is no address at all) and the User-Agent cut to UserAgent.MAX_LENGTH,
+ * so the keys restored from the journal are the keys of the live requests.
+ * */
+@Component
+public class FrequencyCapEngine {
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+    private static final int HOURS_IN_SLIDING_WINDOW = 25; // 24 full hours plus the current one, the cap is never relaxed early
+    private static final int SAMPLES_PER_CANDIDATE = 2;
+
+    private final RequestJournalRepository journalRepo;
+    private final CalendarDay calendarDay;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Logger logger = Logger.getLogger(FrequencyCapEngine.class.getName());
+
+    private final int impressionsPerBanner;
+    private final FrequencyCapWindow window;
+    private final int maxUsers;
+    private final int slots;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final ConcurrentHashMap<UserKey, UserHistory> users = new ConcurrentHashMap<>();
+    private final LongAdder untracked = new LongAdder();
+    private final AtomicLong lastOverflowWarning = new AtomicLong();
+
+    public FrequencyCapEngine(RequestJournalRepository journalRepo, CalendarDay calendarDay,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${bid.frequency-cap.impressions:1}") int impressionsPerBanner,
+                              @Value("${bid.frequency-cap.window:CALENDAR_DAY}") FrequencyCapWindow window,
+                              @Value("${bid.frequency-cap.max-users:1000000}") int maxUsers) {
+        if (impressionsPerBanner < 1) {
+            throw new IllegalArgumentException("bid.frequency-cap.impressions must be positive");
+        }
+        this.journalRepo = journalRepo;
+        this.calendarDay = calendarDay;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.impressionsPerBanner = impressionsPerBanner;
+        this.window = window;
+        this.maxUsers = maxUsers;
+        this.slots = window == FrequencyCapWindow.CALENDAR_DAY ? 1 : HOURS_IN_SLIDING_WINDOW;
+    }
+
+    /**
+     * Restores the shown banners of the current window from the request journal,
+     * so a restart does not let users see the same banners again.
+     * */
+    @PostConstruct
+    public void seedFromJournal() {
+        LocalDateTime from = window == FrequencyCapWindow.CALENDAR_DAY
+                ? LocalDate.now(zone).atStartOfDay()
+                : LocalDateTime.now(zone).minusHours(HOURS_IN_SLIDING_WINDOW);
+
+        long restored = readOnlyTransaction.execute(status -> {
+            long count = 0;
+            try (Stream<ShownBannerRow> rows = journalRepo.findShownBannersSince(from)) {
+                for (ShownBannerRow row : (Iterable<ShownBannerRow>) rows::iterator) {
+                    long bucket = bucketOf(row.getRequestTime());
+                    history(new UserKey(row.getIp(), row.getUserAgent())).seed(row.getBannerId(), bucket);
+                    count++;
+                }
+            }
+            return count;
+        });
+        logger.info("Frequency cap restored from the request journal: " + restored + " impressions of " + users.size() + " users");
+    }
+
+    /**
+     * Atomically checks the cap and, if the banner may still be shown to the user, counts the impression.
+     * @return true if the banner can be shown, false if the user has already seen it enough times
+     * */
+    public boolean tryRecord(String ipAddress, String userAgent, long bannerId) {
+        long bucket = currentBucket();
+        UserKey key = UserKey.of(ipAddress, userAgent);
+        while (true) {
+            UserHistory history = history(key);
+            synchronized (history) {
+                if (!history.removed) { // otherwise the sweep has just dropped it, take the new one
+                    return history.tryRecord(bannerId, bucket, impressionsPerBanner);
+                }
+            }
+        }
+    }
+
+    /**
+     * The first of the candidates (the most expensive first) that may still be shown to the user,
+     * its impression is counted. The user history is locked once for all candidates.
+     * @return the chosen candidate or null if the user has seen all of them enough times
+     * */
+    public BannerCandidate tryRecordFirst(String ipAddress, String userAgent, BannerCandidate[] candidates) {
+        return select(ipAddress, userAgent, candidates, 0, null, true);
+    }
+
+    /**
+     * Like tryRecordFirst, but the first "sampled" candidates are checked in a random order drawn by the sampler
+     * (indexes from 0 to sampled - 1). A rejected candidate is remembered and skipped if it is drawn again.
+     * After SAMPLES_PER_CANDIDATE * sampled draws, or once all of them are rejected, the rest of the candidates
+     * are checked in order, so the result is null only if the user has seen all of them enough times.
+     * */
+    public BannerCandidate tryRecordSampled(String ipAddress, String userAgent, BannerCandidate[] candidates,
+                                            int sampled, IntSupplier sampler) {
+        return select(ipAddress, userAgent, candidates, sampled, sampler, true);
+    }
+
+    /**
+     * The candidate that tryRecordFirst (sampled = 0) or tryRecordSampled would choose now,
+     * but the impression is not counted and an unknown user is not added. Used by the startup warm-up.
+     * */
+    public BannerCandidate peek(String ipAddress, String userAgent, BannerCandidate[] candidates,
+                                int sampled, IntSupplier sampler) {
+        return select(ipAddress, userAgent, candidates, sampled, sampler, false);
+    }
+
+    private BannerCandidate select(String ipAddress, String userAgent, BannerCandidate[] candidates,
+                                   int sampled, IntSupplier sampler, boolean record) {
+        long bucket = currentBucket();
+        UserKey key = UserKey.of(ipAddress, userAgent);
+        if (!record) {
+            UserHistory history = users.get(key);
+            if (history == null) { // nothing shown yet, the history is not kept
+                history = new UserHistory(slots);
+            }
+            synchronized (history) {
+                return select(history, candidates, sampled, sampler, bucket, false);
+            }
+        }
+        while (true) {
+            UserHistory history = history(key);
+            synchronized (history) {
+                if (!history.removed) { // otherwise the sweep has just dropped it, take the new one
+                    return select(history, candidates, sampled, sampler, bucket, true);
+                }
+            }
+        }
+    }
+
+    private BannerCandidate select(UserHistory history, BannerCandidate[] candidates, int sampled, IntSupplier sampler,
+                                   long bucket, boolean record) {
+        boolean[] rejected = null; // most requests pass with the first draw
+        int rejectedCount = 0;
+        for (int draw = 0; draw < SAMPLES_PER_CANDIDATE * sampled && rejectedCount < sampled; draw++) {
+            int index = sampler.getAsInt();
+            if (rejected != null && rejected[index]) {
+                continue;
+            }
+            if (history.check(candidates[index].getId(), bucket, impressionsPerBanner, record)) {
+                return candidates[index];
+            }
+            if (rejected == null) {
+                rejected = new boolean[sampled];
+            }
+            rejected[index] = true;
+            rejectedCount++;
+        }
+        for (int index = 0; index < candidates.length; index++) {
+            if (index < sampled && rejected != null && rejected[index]) {
+                continue;
+            }
+            if (history.check(candidates[index].getId(), bucket, impressionsPerBanner, record)) {
+                return candidates[index];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes users that have no impressions inside the current window.
+     * */
+    @Scheduled(fixedDelayString = "${bid.frequency-cap.sweep-interval-ms:60000}")
+    public void sweep() {
+        long bucket = currentBucket();
+        users.values().removeIf(history -> {
+            synchronized (history) {
+                if (history.isExpired(bucket)) {
+                    history.removed = true;
+                    return true;
+                }
+                return false;
+            }
+        });
+    }
+
+    public int trackedUsers() {
+        return users.size();
+    }
+
+    /**
+     * Requests of users that were not tracked because the limit of users was reached.
+     * */
+    public long untrackedCount() {
+        return untracked.sum();
+    }
+
+    private UserHistory history(UserKey key) {
+        UserHistory history = users.get(key);
+        if (history != null) {
+            return history;
+        }
+        if (users.size() >= maxUsers) { // the size is approximate, concurrent inserts may exceed the limit slightly
+            untracked.increment();
+            warnOverflow();
+            return new UserHistory(slots); // not kept, the cap is not applied to this user
+        }
+        return users.computeIfAbsent(key, k -> new UserHistory(slots));
+    }
+
+    /**
+     * Not more often than once a minute, so a burst of new users does not flood the log.
+     * */
+    private void warnOverflow() {
+        long now = System.currentTimeMillis();
+        long last = lastOverflowWarning.get();
+        if (now - last > 60_000 && lastOverflowWarning.compareAndSet(last, now)) {
+            logger.warning("Frequency cap holds " + users.size() + " users, limit is " + maxUsers
+                    + ", new users are served without the cap until the sweep frees space");
+        }
+    }
+
+    private long currentBucket() {
+        return window == FrequencyCapWindow.CALENDAR_DAY
+                ? calendarDay.today().epochDay()
+                : System.currentTimeMillis() / MILLIS_PER_HOUR;
+    }
+
+    private long bucketOf(LocalDateTime time) {
+        return window == FrequencyCapWindow.CALENDAR_DAY
+                ? time.toLocalDate().toEpochDay()
+                : time.atZone(zone).toInstant().toEpochMilli() / MILLIS_PER_HOUR;
+    }
+
+    private static final class UserKey {
+        private final byte[] ip;
+        private final String userAgent;
+        private final int hash;
+
+        /** ip and userAgent as the journal stores them */
+        UserKey(byte[] ip, String userAgent) {
+            this.ip = ip;
+            this.userAgent = userAgent;
+            this.hash = 31 * Arrays.hashCode(ip) + Objects.hashCode(userAgent);
+        }
+
+        static UserKey of(String ipAddress, String userAgent) {
+            return new UserKey(IpAddresses.toBytes(ipAddress), userAgent == null ? null : UserAgentDictionary.stored(userAgent));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof UserKey other)) return false;
+            return Arrays.equals(ip, other.ip) && Objects.equals(userAgent, other.userAgent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Ring of time buckets, each bucket is a compact array of shown banner ids (one entry per impression).
+     * Guarded by its own monitor.
+     * */
+    private static final class UserHistory {
+        private final long[] buckets;
+        private final long[][] bannerIds;
+        private final int[] sizes;
+        boolean removed;
+
+        UserHistory(int slots) {
+            buckets = new long[slots];
+            bannerIds = new long[slots][];
+            sizes = new int[slots];
+            Arrays.fill(buckets, Long.MIN_VALUE);
+        }
+
+        boolean tryRecord(long bannerId, long currentBucket, int cap) {
+            return check(bannerId, currentBucket, cap, true);
+        }
+
+        /** Whether the banner may be shown, with record the impression is counted as well */
+        boolean check(long bannerId, long currentBucket, int cap, boolean record) {
+            int shown = 0;
+            for (int slot = 0; slot < buckets.length; slot++) {
+                if (isLive(buckets[slot], currentBucket)) {
+                    long[] ids = bannerIds[slot];
+                    for (int i = 0; i < sizes[slot]; i++) {
+                        if (ids[i] == bannerId) {
+                            shown++;
+                        }
+                    }
+                }
+            }
+            if (shown >= cap) {
+                return false;
+            }
+            if (record) {
+                add(bannerId, currentBucket);
+            }
+            return true;
+        }
+
+        synchronized void seed(long bannerId, long bucket) {
+            int slot = slotOf(bucket);
+            if (buckets[slot] > bucket) { // a newer bucket already took the slot, the record is out of the window
+                return;
+            }
+            add(bannerId, bucket);
+        }
+
+        boolean isExpired(long currentBucket) {
+            for (long bucket : buckets) {
+                if (isLive(bucket, currentBucket)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void add(long bannerId, long bucket) {
+            int slot = slotOf(bucket);
+            if (buckets[slot] != bucket) { // the slot belongs to an expired bucket, reuse it
+                buckets[slot] = bucket;
+                sizes[slot] = 0;
+            }
+            long[] ids = bannerIds[slot];
+            if (ids == null) {
+                ids = bannerIds[slot] = new long[4];
+            } else if (sizes[slot] == ids.length) {
+                ids = bannerIds[slot] = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[sizes[slot]++] = bannerId;
+        }
+
+        private boolean isLive(long bucket, long currentBucket) {
+            return bucket <= currentBucket && bucket > currentBucket - buckets.length;
+        }
+
+        private int slotOf(long bucket) {
+            return (int) Math.floorMod(bucket, (long) buckets.length);
+        }
+    }
+}
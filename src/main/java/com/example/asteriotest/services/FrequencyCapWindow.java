@@ -0,0 +1,11 @@
+package com.example.asteriotest.services;
+
+/**
+ * Time window in which the number of impressions of one banner to one user is limited.
+ * */
+public enum FrequencyCapWindow {
+    /** impressions are counted from the start of the current calendar day */
+    CALENDAR_DAY,
+    /** impressions are counted over the last 24 hours (with hourly precision, rounded up) */
+    SLIDING_24H
+}
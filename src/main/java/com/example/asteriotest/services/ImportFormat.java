@@ -0,0 +1,15 @@
+package com.example.asteriotest.services;
+
+/**
+ * Format of a bulk import body, chosen by the Content-Type of the request, also used by the journal export.
+ * */
+public enum ImportFormat {
+    /** one JSON object per line (application/x-ndjson, the default) */
+    NDJSON,
+    /** a header line with the field names, then one record per line (text/csv) */
+    CSV;
+
+    public static ImportFormat fromContentType(String contentType) {
+        return contentType != null && contentType.toLowerCase().startsWith("text/csv") ? CSV : NDJSON;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.asteriotest.services;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the body of a bulk import record by record, so a broken record is reported
+ * and the next one is still read. Empty lines are skipped.
+ * NDJSON is read line by line (a JSON line cannot contain a raw line break).
+ * CSV is streamed by the Jackson CSV parser with the schema of the header line, so quoted values
+ * may contain commas and line breaks; a row is reported with the line it starts on.
+ * */
+class ImportRowReader<T> implements Closeable {
+    private final BufferedReader reader;
+    private final ObjectReader rowReader;
+    private final MappingIterator<T> csvRecords;
+    private long line;
+    private boolean finished;
+
+    ImportRowReader(InputStream body, ImportFormat format, Class<T> type, ObjectMapper objectMapper) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        if (format == ImportFormat.CSV) {
+            CsvMapper csvMapper = new CsvMapper();
+            csvMapper.enable(CsvParser.Feature.SKIP_EMPTY_LINES);
+            CsvParser parser = csvMapper.getFactory().createParser(reader);
+            parser.setSchema(readHeader(parser));
+            parser.clearCurrentToken(); // the end of the header row, the iterator starts from the next token
+            this.rowReader = null;
+            this.csvRecords = csvMapper.readerFor(type).readValues(parser);
+        } else {
+            this.rowReader = objectMapper.readerFor(type);
+            this.csvRecords = null;
+        }
+    }
+
+    /**
+     * Reads the header row as plain values (no schema yet), the trimmed values are the column names.
+     * */
+    private static CsvSchema readHeader(CsvParser parser) throws IOException {
+        parser.setSchema(CsvSchema.emptySchema());
+        CsvSchema.Builder schema = CsvSchema.builder().setArrayElementSeparator("|");
+        if (parser.nextToken() == JsonToken.START_ARRAY) {
+            while (parser.nextToken() == JsonToken.VALUE_STRING) {
+                String column = parser.getText().trim();
+                if (!column.isEmpty()) {
+                    schema.addColumn(column);
+                }
+            }
+        }
+        if (schema.size() == 0) {
+            throw new IllegalArgumentException("CSV header line is missing");
+        }
+        return schema.build();
+    }
+
+    /**
+     * @return the next row, or null at the end of the body
+     * */
+    Row<T> next() throws IOException {
+        return csvRecords != null ? nextCsv() : nextLine();
+    }
+
+    private Row<T> nextLine() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            line++;
+            if (text == null) {
+                return null;
+            }
+        } while (text.isBlank());
+
+        try {
+            T value = rowReader.readValue(text);
+            return value != null ? new Row<>(line, value, null) : new Row<>(line, null, "the line is null, an object is expected");
+        } catch (JsonProcessingException exc) {
+            return new Row<>(line, null, "cannot parse the line: " + exc.getOriginalMessage());
+        }
+    }
+
+    private Row<T> nextCsv() throws IOException {
+        if (finished) {
+            return null;
+        }
+        long start = csvRecords.getParser().currentLocation().getLineNr();
+        try {
+            if (!csvRecords.hasNextValue()) {
+                return null;
+            }
+            start = csvRecords.getParser().currentLocation().getLineNr(); // at the start of a record it is the first line of it
+        } catch (JsonProcessingException exc) {
+            // the parser cannot find the start of the next record, the rest of the body is not read
+            finished = true;
+            return new Row<>(lineOf(exc, start), null, "cannot parse the line: " + exc.getOriginalMessage());
+        }
+        try {
+            return new Row<>(start, csvRecords.nextValue(), null);
+        } catch (JsonProcessingException exc) {
+            return new Row<>(start, null, "cannot parse the line: " + exc.getOriginalMessage());
+        }
+    }
+
+    private static long lineOf(JsonProcessingException exc, long fallback) {
+        JsonLocation location = exc.getLocation();
+        return location != null && location.getLineNr() > 0 ? location.getLineNr() : fallback;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (csvRecords != null) {
+            csvRecords.getParser().close();
+        }
+        reader.close();
+    }
+
+    static final class Row<T> {
+        final long line;
+        final T value;
+        final String error;
+
+        Row(long line, T value, String error) {
+            this.line = line;
+            this.value = value;
+            this.error = error;
+        }
+    }
+}
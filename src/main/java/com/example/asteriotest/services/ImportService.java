@@ -0,0 +1,305 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.Banner;
+import com.example.asteriotest.model.Category;
+import com.example.asteriotest.model.DTO.BannerImportRow;
+import com.example.asteriotest.model.DTO.CategoryImportRow;
+import com.example.asteriotest.model.DTO.ImportReport;
+import com.example.asteriotest.repository.BannerRepository;
+import com.example.asteriotest.repository.BidCandidateRepository;
+import com.example.asteriotest.repository.CategoriesRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bulk import of banners and categories from NDJSON or CSV.
+ * The body is read as a stream and processed in chunks: every chunk is validated with a few IN queries
+ * (names and requestIds that are already taken, the referenced categories)
+ * and the valid rows are inserted in one transaction with JDBC batching (hibernate.jdbc.batch_size).
+ * A failed chunk does not stop the import, its rows are reported as failed.
+ * The catalog is rebuilt once, after the whole import, the admin search index after every committed chunk.
+ * If the body cannot be read to the end, the committed chunks stay and the report carries the error.
+ * */
+@Service
+public class ImportService {
+    private final BannerRepository bannerRepo;
+    private final BidCandidateRepository candidateRepo;
+    private final CategoriesRepository categoriesRepo;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaction;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AdminNameIndex nameIndex;
+    private final int chunkSize;
+    private final Logger logger = Logger.getLogger(ImportService.class.getName());
+
+    public ImportService(BannerRepository bannerRepo, BidCandidateRepository candidateRepo, CategoriesRepository categoriesRepo, ObjectMapper objectMapper,
+                         EntityManager entityManager, PlatformTransactionManager transactionManager,
+                         ApplicationEventPublisher eventPublisher, AdminNameIndex nameIndex,
+                         @Value("${import.chunk-size:1000}") int chunkSize) {
+        this.bannerRepo = bannerRepo;
+        this.candidateRepo = candidateRepo;
+        this.categoriesRepo = categoriesRepo;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.nameIndex = nameIndex;
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportReport importBanners(InputStream body, ImportFormat format) {
+        ImportReport report = new ImportReport();
+        Set<String> namesInFile = new HashSet<>();
+        List<ImportRowReader.Row<BannerImportRow>> chunk = new ArrayList<>(chunkSize);
+
+        try {
+            try (ImportRowReader<BannerImportRow> reader = new ImportRowReader<>(body, format, BannerImportRow.class, objectMapper)) {
+                ImportRowReader.Row<BannerImportRow> row;
+                while ((row = reader.next()) != null) {
+                    String error = row.error != null ? row.error : validate(row.value, namesInFile);
+                    if (error != null) {
+                        report.failed(row.line, error);
+                        continue;
+                    }
+                    chunk.add(row);
+                    if (chunk.size() == chunkSize) {
+                        importChunk(chunk, report, this::saveBanners);
+                    }
+                }
+            } catch (IOException exc) { // e.g. the client disconnected
+                report.aborted("the body could not be read to the end: " + exc.getMessage());
+            } catch (IllegalArgumentException exc) { // e.g. no CSV header
+                report.aborted(exc.getMessage());
+            }
+            importChunk(chunk, report, this::saveBanners); // the rows read before an error are complete
+        } finally { // the committed chunks reach the catalog even if the import stopped halfway
+            if (report.getImported() > 0) {
+                eventPublisher.publishEvent(new CatalogChangedEvent("banners imported"));
+            }
+        }
+        logger.info("Banner import finished, imported: " + report.getImported() + ", failed: " + report.getFailed()
+                + (report.getError() != null ? ", stopped: " + report.getError() : ""));
+        return report;
+    }
+
+    public ImportReport importCategories(InputStream body, ImportFormat format) {
+        ImportReport report = new ImportReport();
+        Set<String> namesInFile = new HashSet<>();
+        Set<String> requestIdsInFile = new HashSet<>();
+        List<ImportRowReader.Row<CategoryImportRow>> chunk = new ArrayList<>(chunkSize);
+
+        try {
+            try (ImportRowReader<CategoryImportRow> reader = new ImportRowReader<>(body, format, CategoryImportRow.class, objectMapper)) {
+                ImportRowReader.Row<CategoryImportRow> row;
+                while ((row = reader.next()) != null) {
+                    String error = row.error != null ? row.error : validate(row.value, namesInFile, requestIdsInFile);
+                    if (error != null) {
+                        report.failed(row.line, error);
+                        continue;
+                    }
+                    chunk.add(row);
+                    if (chunk.size() == chunkSize) {
+                        importChunk(chunk, report, this::saveCategories);
+                    }
+                }
+            } catch (IOException exc) { // e.g. the client disconnected
+                report.aborted("the body could not be read to the end: " + exc.getMessage());
+            } catch (IllegalArgumentException exc) { // e.g. no CSV header
+                report.aborted(exc.getMessage());
+            }
+            importChunk(chunk, report, this::saveCategories); // the rows read before an error are complete
+        } finally { // the committed chunks reach the catalog even if the import stopped halfway
+            if (report.getImported() > 0) {
+                eventPublisher.publishEvent(new CatalogChangedEvent("categories imported"));
+            }
+        }
+        logger.info("Category import finished, imported: " + report.getImported() + ", failed: " + report.getFailed()
+                + (report.getError() != null ? ", stopped: " + report.getError() : ""));
+        return report;
+    }
+
+    /**
+     * Checks of a single row, without the database.
+     * @return the error message or null
+     * */
+    private static String validate(BannerImportRow row, Set<String> namesInFile) {
+        if (row.getNameBanner() == null || row.getNameBanner().isBlank()) {
+            return "nameBanner is empty";
+        }
+        if (row.getText() == null || row.getText().isBlank()) {
+            return "text is empty";
+        }
+        if (row.getPrice() == null || row.getPrice() < 0) {
+            return "price must be zero or positive";
+        }
+        if (row.getCategories() == null || row.getCategories().isEmpty()) {
+            return "at least one category is required";
+        }
+        if (!namesInFile.add(row.getNameBanner())) {
+            return "banner " + row.getNameBanner() + " is repeated in the file";
+        }
+        return null;
+    }
+
+    private static String validate(CategoryImportRow row, Set<String> namesInFile, Set<String> requestIdsInFile) {
+        if (row.getName() == null || row.getName().isBlank()) {
+            return "name is empty";
+        }
+        if (row.getRequestId() == null || row.getRequestId().isBlank()) {
+            return "requestId is empty";
+        }
+        if (!namesInFile.add(row.getName())) {
+            return "category " + row.getName() + " is repeated in the file";
+        }
+        if (!requestIdsInFile.add(row.getRequestId())) {
+            return "requestId " + row.getRequestId() + " is repeated in the file";
+        }
+        return null;
+    }
+
+    private interface ChunkSaver<T> {
+        void save(List<ImportRowReader.Row<T>> chunk, ImportReport report);
+    }
+
+    /**
+     * Validates and saves one chunk in its own transaction, then clears the persistence context
+     * so the entities of the saved chunks are not kept until the end of the request.
+     * */
+    private <T> void importChunk(List<ImportRowReader.Row<T>> chunk, ImportReport report, ChunkSaver<T> saver) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        ImportReport chunkReport = new ImportReport();
+        try {
+            transaction.executeWithoutResult(status -> saver.save(chunk, chunkReport));
+            chunkReport.getRows().forEach(result -> {
+                if (result.getId() != null) {
+                    report.created(result.getLine(), result.getId());
+                } else {
+                    report.failed(result.getLine(), result.getMessage());
+                }
+            });
+        } catch (RuntimeException exc) { // e.g. a name taken by a concurrent request, nothing of the chunk is saved
+            logger.log(Level.WARNING, "Import chunk of " + chunk.size() + " rows failed", exc);
+            for (ImportRowReader.Row<T> row : chunk) {
+                report.failed(row.line, "the chunk of this line was not saved: " + exc.getMessage());
+            }
+        } finally {
+            entityManager.clear();
+            chunk.clear();
+        }
+    }
+
+    private void saveBanners(List<ImportRowReader.Row<BannerImportRow>> chunk, ImportReport report) {
+        Set<String> names = new HashSet<>();
+        Set<String> requestIds = new HashSet<>();
+        for (ImportRowReader.Row<BannerImportRow> row : chunk) {
+            names.add(row.value.getNameBanner());
+            requestIds.addAll(row.value.getCategories());
+        }
+        Set<String> takenNames = new HashSet<>(bannerRepo.findExistingNames(names));
+        Map<String, Category> categories = new HashMap<>();
+        for (Category category : categoriesRepo.findAllByRequestIdIn(requestIds)) {
+            categories.put(category.getRequestId(), category);
+        }
+
+        List<ImportRowReader.Row<BannerImportRow>> valid = new ArrayList<>(chunk.size());
+        List<Banner> banners = new ArrayList<>(chunk.size());
+        for (ImportRowReader.Row<BannerImportRow> row : chunk) {
+            BannerImportRow value = row.value;
+            if (takenNames.contains(value.getNameBanner())) {
+                report.failed(row.line, "Banner with this name already exists");
+                continue;
+            }
+            Set<Category> bannerCategories = new HashSet<>();
+            String missing = null;
+            for (String requestId : value.getCategories()) {
+                Category category = categories.get(requestId);
+                if (category == null) {
+                    missing = requestId;
+                    break;
+                }
+                bannerCategories.add(category);
+            }
+            if (missing != null) {
+                report.failed(row.line, "Category " + missing + " does not exist");
+                continue;
+            }
+
+            Banner banner = new Banner();
+            banner.setNameBanner(value.getNameBanner());
+            banner.setText(value.getText());
+            banner.setPrice(value.getPrice());
+            banner.setCategories(bannerCategories);
+            banners.add(banner);
+            valid.add(row);
+        }
+
+        bannerRepo.saveAll(banners);
+        entityManager.flush(); // the inserts run here, inside the chunk transaction
+        candidateRepo.refreshBanners(banners.stream().map(Banner::getId).toList());
+        afterCommit(() -> banners.forEach(nameIndex::bannerSaved));
+        for (int i = 0; i < banners.size(); i++) {
+            report.created(valid.get(i).line, banners.get(i).getId());
+        }
+    }
+
+    private void saveCategories(List<ImportRowReader.Row<CategoryImportRow>> chunk, ImportReport report) {
+        Set<String> names = new HashSet<>();
+        Set<String> requestIds = new HashSet<>();
+        for (ImportRowReader.Row<CategoryImportRow> row : chunk) {
+            names.add(row.value.getName());
+            requestIds.add(row.value.getRequestId());
+        }
+        Set<String> takenNames = new HashSet<>(categoriesRepo.findExistingNames(names));
+        Set<String> takenRequestIds = new HashSet<>(categoriesRepo.findExistingRequestIds(requestIds));
+
+        List<ImportRowReader.Row<CategoryImportRow>> valid = new ArrayList<>(chunk.size());
+        List<Category> categories = new ArrayList<>(chunk.size());
+        for (ImportRowReader.Row<CategoryImportRow> row : chunk) {
+            if (takenNames.contains(row.value.getName())) {
+                report.failed(row.line, "Category with this name already exist");
+                continue;
+            }
+            if (takenRequestIds.contains(row.value.getRequestId())) {
+                report.failed(row.line, "Category with this requestId alreadyExist");
+                continue;
+            }
+            Category category = new Category();
+            category.setName(row.value.getName());
+            category.setRequestId(row.value.getRequestId());
+            categories.add(category);
+            valid.add(row);
+        }
+
+        categoriesRepo.saveAll(categories);
+        entityManager.flush();
+        afterCommit(() -> categories.forEach(nameIndex::categorySaved));
+        for (int i = 0; i < categories.size(); i++) {
+            report.created(valid.get(i).line, categories.get(i).getId());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.asteriotest.services;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Binary form of the client IP for the request journal: 4 bytes for IPv4, 16 for IPv6
+ * (an IPv4-mapped IPv6 address is stored as IPv4).
+ * Never resolves host names: a string that is not an IP literal has no binary form.
+ * */
+public final class IpAddresses {
+    private IpAddresses() {}
+
+    /**
+     * @return the address bytes, or null if the string is null or not an IP address
+     * */
+    public static byte[] toBytes(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return null;
+        }
+        if (ip.indexOf(':') < 0) {
+            return parseIpv4(ip);
+        }
+        try {
+            return InetAddress.getByName(ip).getAddress(); // contains ':', so it is parsed as an IPv6 literal, no lookup
+        } catch (UnknownHostException | SecurityException exc) {
+            return null;
+        }
+    }
+
+    /**
+     * The same text as HttpServletRequest.getRemoteAddr() gives for the address.
+     * */
+    public static String toString(byte[] ip) {
+        if (ip == null) {
+            return null;
+        }
+        try {
+            return InetAddress.getByAddress(ip).getHostAddress();
+        } catch (UnknownHostException exc) { // wrong length
+            throw new IllegalArgumentException("Not an IP address: " + ip.length + " bytes", exc);
+        }
+    }
+
+    private static byte[] parseIpv4(String ip) {
+        byte[] bytes = new byte[4];
+        int part = 0;
+        int value = -1;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value < 0 ? c - '0' : value * 10 + (c - '0');
+                if (value > 255) {
+                    return null;
+                }
+            } else if (c == '.' && value >= 0 && part < 3) {
+                bytes[part++] = (byte) value;
+                value = -1;
+            } else {
+                return null;
+            }
+        }
+        if (part != 3 || value < 0) {
+            return null;
+        }
+        bytes[3] = (byte) value;
+        return bytes;
+    }
+}
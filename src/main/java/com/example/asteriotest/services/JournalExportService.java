@@ -0,0 +1,133 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.JournalError;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Export of the request journal records of a time range as NDJSON or CSV.
+ * The rows are read with a forward-only JDBC cursor and written to the output stream one by one,
+ * nothing is collected in memory, so the export of any size needs the same heap.
+ * The driver fetches journal.export.fetch-size rows per round trip. MySQL Connector/J ignores a fetch size
+ * and reads the whole result into memory unless the URL has useCursorFetch=true, so on MySQL without it
+ * the rows are streamed one by one instead (fetch size Integer.MIN_VALUE).
+ * */
+@Service
+public class JournalExportService {
+    private static final String[] COLUMNS = {"id", "ipAddress", "userAgent", "requestTime", "bannerId", "bannerPrice", "errorMessage"};
+    // the compact columns are expanded back: the User-Agent string from the dictionary, the IP and the error as text
+    private static final String QUERY = "SELECT j.id, j.ip, u.user_agent, j.request_time, j.banner_id, j.banner_price, j.error_code " +
+            "FROM request_journal j LEFT JOIN user_agent u ON u.id = j.user_agent_id " +
+            "WHERE j.request_time >= ? AND j.request_time < ? ORDER BY j.request_time, j.id";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final Logger logger = Logger.getLogger(JournalExportService.class.getName());
+
+    public JournalExportService(DataSource dataSource, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                @Value("${journal.export.fetch-size:1000}") int fetchSize) {
+        // an own template, the fetch size must not apply to the other queries
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(effectiveFetchSize(dataSource, fetchSize));
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * The configured fetch size, or Integer.MIN_VALUE on MySQL when the URL has no useCursorFetch=true.
+     * */
+    private int effectiveFetchSize(DataSource dataSource, int fetchSize) {
+        try {
+            boolean readsWholeResult = JdbcUtils.extractDatabaseMetaData(dataSource, metaData ->
+                    "MySQL".equals(metaData.getDatabaseProductName())
+                            && !metaData.getURL().toLowerCase().contains("usecursorfetch=true"));
+            if (readsWholeResult) {
+                logger.info("Journal export: the MySQL URL has no useCursorFetch=true, the rows are streamed one by one");
+                return Integer.MIN_VALUE;
+            }
+        } catch (MetaDataAccessException exc) {
+            logger.warning("Journal export: the database could not be identified, fetch size " + fetchSize + " is used: " + exc);
+        }
+        return fetchSize;
+    }
+
+    /**
+     * Writes the records with from <= requestTime < to, ordered by time.
+     * @return number of written records
+     * */
+    public long export(LocalDateTime from, LocalDateTime to, ImportFormat format, OutputStream out) throws IOException {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("ERROR 400: \"from\" must be before \"to\"");
+        }
+
+        try (SequenceWriter writer = writer(format, out)) {
+            Long written = readOnlyTransaction.execute(status -> {
+                long[] rows = {0};
+                jdbc.query(QUERY, resultSet -> {
+                    try {
+                        writer.write(toMap(resultSet));
+                    } catch (IOException exc) { // e.g. the client went away, stops reading the cursor
+                        throw new UncheckedIOException(exc);
+                    }
+                    rows[0]++;
+                }, from, to);
+                return rows[0];
+            });
+            if (format == ImportFormat.NDJSON && written != null && written > 0) {
+                writer.flush();
+                out.write('\n'); // the separator is written between the records only, every line must end with one
+            }
+            return written == null ? 0 : written;
+        } catch (UncheckedIOException exc) {
+            throw exc.getCause();
+        }
+    }
+
+    private SequenceWriter writer(ImportFormat format, OutputStream out) throws IOException {
+        if (format == ImportFormat.CSV) {
+            CsvSchema.Builder schema = CsvSchema.builder().setUseHeader(true);
+            for (String column : COLUMNS) {
+                schema.addColumn(column);
+            }
+            return csvMapper.writer(schema.build()).writeValues(out);
+        }
+        return objectMapper.writer().withRootValueSeparator("\n").writeValues(out);
+    }
+
+    private static Map<String, Object> toMap(ResultSet resultSet) throws SQLException {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("id", resultSet.getLong("id"));
+        values.put("ipAddress", IpAddresses.toString(resultSet.getBytes("ip")));
+        values.put("userAgent", resultSet.getString("user_agent"));
+        values.put("requestTime", resultSet.getObject("request_time", LocalDateTime.class).toString());
+        long bannerId = resultSet.getLong("banner_id");
+        values.put("bannerId", resultSet.wasNull() ? null : bannerId);
+        values.put("bannerPrice", resultSet.getDouble("banner_price"));
+        int errorCode = resultSet.getInt("error_code");
+        values.put("errorMessage", resultSet.wasNull() ? null : JournalError.ofCode(errorCode).getMessage());
+        return values;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.JournalError;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Runs the steps listed in journal.migrate (see JournalMigrationStep) and exits, a migration is a separate run
+ * of the application against the production database, e.g. java -jar asterioTest-0.0.1-SNAPSHOT.jar --journal.migrate=LEGACY_COLUMNS
+ * The steps run after Hibernate has updated the schema and before the warm-up, the application never reports ready.
+ * Every step can be repeated, e.g. after it has been interrupted.
+ * Without journal.migrate the runner does nothing.
+ * */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class JournalMigration implements ApplicationRunner {
+    private static final String TABLE = "request_journal";
+    private static final List<String> LEGACY_COLUMNS = List.of("ip_address", "user_agent", "error_message");
+    private static final String LEGACY_INDEX = "idx_journal_banner_user_time";
+
+    private final ApplicationContext context;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final UserAgentDictionary userAgents;
+    private final JournalPartitionManager partitionManager;
+    private final TransactionTemplate transaction;
+    private final List<JournalMigrationStep> steps;
+    private final int chunkSize;
+    private final Logger logger = Logger.getLogger(JournalMigration.class.getName());
+
+    public JournalMigration(ApplicationContext context, DataSource dataSource, JdbcTemplate jdbc,
+                            UserAgentDictionary userAgents, JournalPartitionManager partitionManager,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${journal.migrate:}") List<JournalMigrationStep> steps,
+                            @Value("${journal.migrate.chunk-size:5000}") int chunkSize) {
+        this.context = context;
+        this.dataSource = dataSource;
+        this.jdbc = jdbc;
+        this.userAgents = userAgents;
+        this.partitionManager = partitionManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.steps = steps;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws MetaDataAccessException {
+        if (steps.isEmpty()) {
+            return;
+        }
+        for (JournalMigrationStep step : steps) {
+            long start = System.currentTimeMillis();
+            switch (step) {
+                case LEGACY_COLUMNS -> migrateLegacyColumns();
+                case PARTITION_BY_DAY -> partitionManager.partition(LocalDate.now());
+            }
+            logger.info("Journal migration " + step + " finished in " + (System.currentTimeMillis() - start) + " ms");
+        }
+        System.exit(SpringApplication.exit(context));
+    }
+
+    /**
+     * Fills the compact columns of the old records from the strings, in chunks of journal.migrate.chunk-size rows
+     * (a column that is already set is kept), then drops the strings.
+     * The User-Agent strings are added to the dictionary, an IP that is not an IP literal stays null.
+     * */
+    private void migrateLegacyColumns() throws MetaDataAccessException {
+        List<String> present = new ArrayList<>(LEGACY_COLUMNS);
+        present.retainAll(columns());
+        if (present.isEmpty()) {
+            logger.info("Journal migration: request_journal has no legacy columns");
+            return;
+        }
+
+        String select = "SELECT id, " + legacyColumn("ip_address", present) + ", " + legacyColumn("user_agent", present)
+                + ", " + legacyColumn("error_message", present) + " FROM " + TABLE + " WHERE id > ? AND ("
+                + String.join(" IS NOT NULL OR ", present) + " IS NOT NULL) ORDER BY id LIMIT ?";
+        String update = "UPDATE " + TABLE + " SET ip = COALESCE(ip, ?), user_agent_id = COALESCE(user_agent_id, ?), "
+                + "error_code = COALESCE(error_code, ?) WHERE id = ?";
+
+        long lastId = 0;
+        long migrated = 0;
+        while (true) {
+            List<Object[]> rows = jdbc.query(select, (resultSet, row) -> compactValues(resultSet), lastId, chunkSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            transaction.executeWithoutResult(status -> jdbc.batchUpdate(update, rows));
+            lastId = (Long) rows.get(rows.size() - 1)[3];
+            migrated += rows.size();
+            logger.info("Journal migration: " + migrated + " records migrated");
+        }
+
+        dropLegacyColumns(present);
+    }
+
+
+    private static String legacyColumn(String column, List<String> present) {
+        return present.contains(column) ? column : "NULL AS " + column;
+    }
+
+    private Object[] compactValues(ResultSet resultSet) throws SQLException {
+        String userAgent = resultSet.getString("user_agent");
+        String errorMessage = resultSet.getString("error_message");
+        JournalError error = null;
+        for (JournalError candidate : JournalError.values()) {
+            if (candidate.getMessage().equals(errorMessage)) {
+                error = candidate;
+                break;
+            }
+        }
+        return new Object[]{
+                new SqlParameterValue(Types.VARBINARY, IpAddresses.toBytes(resultSet.getString("ip_address"))),
+                new SqlParameterValue(Types.INTEGER, userAgents.idOf(userAgent)),
+                new SqlParameterValue(Types.TINYINT, error == null ? null : error.getCode()),
+                resultSet.getLong("id")};
+    }
+
+    private void dropLegacyColumns(List<String> present) throws MetaDataAccessException {
+        boolean mySql = "MySQL".equals(JdbcUtils.extractDatabaseMetaData(dataSource, metaData -> metaData.getDatabaseProductName()));
+        boolean hasIndex = indexes().contains(LEGACY_INDEX);
+        if (mySql) { // one statement, the table is rebuilt once
+            List<String> changes = new ArrayList<>();
+            if (hasIndex) {
+                changes.add("DROP INDEX " + LEGACY_INDEX);
+            }
+            for (String column : present) {
+                changes.add("DROP COLUMN " + column);
+            }
+            jdbc.execute("ALTER TABLE " + TABLE + " " + String.join(", ", changes));
+        } else {
+            if (hasIndex) {
+                jdbc.execute("DROP INDEX " + LEGACY_INDEX);
+            }
+            for (String column : present) {
+                jdbc.execute("ALTER TABLE " + TABLE + " DROP COLUMN " + column);
+            }
+        }
+        logger.info("Journal migration: legacy columns dropped: " + present);
+    }
+
+    private Set<String> columns() {
+        return jdbc.query("SELECT * FROM " + TABLE + " WHERE 1 = 0", resultSet -> {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            Set<String> names = new HashSet<>();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                names.add(metaData.getColumnLabel(i).toLowerCase());
+            }
+            return names;
+        });
+    }
+
+    private Set<String> indexes() throws MetaDataAccessException {
+        return JdbcUtils.extractDatabaseMetaData(dataSource, metaData -> {
+            Set<String> names = new HashSet<>();
+            try (ResultSet resultSet = metaData.getIndexInfo(null, null, TABLE, false, true)) {
+                while (resultSet.next()) {
+                    String name = resultSet.getString("INDEX_NAME");
+                    if (name != null) {
+                        names.add(name.toLowerCase());
+                    }
+                }
+            }
+            return names;
+        });
+    }
+}
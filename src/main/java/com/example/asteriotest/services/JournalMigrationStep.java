@@ -0,0 +1,17 @@
+package com.example.asteriotest.services;
+
+/**
+ * One-off changes of the request_journal table, run on request with journal.migrate (see JournalMigration).
+ * */
+public enum JournalMigrationStep {
+    /**
+     * The records written before the compact columns (ip_address, user_agent, error_message strings)
+     * get their ip, user_agent_id and error_code, then the old columns and their index are dropped
+     * */
+    LEGACY_COLUMNS,
+    /**
+     * The plain table is partitioned by day for journal.storage.mode=MYSQL, see JournalPartitionManager.
+     * Rewrites the whole table
+     * */
+    PARTITION_BY_DAY
+}
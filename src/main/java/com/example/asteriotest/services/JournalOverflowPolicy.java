@@ -0,0 +1,13 @@
+package com.example.asteriotest.services;
+
+/**
+ * What the request thread does when the journal queue is full.
+ * */
+public enum JournalOverflowPolicy {
+    /** wait until the writer frees space in the queue (backpressure on the request thread) */
+    BLOCK,
+    /** discard the record and count it as dropped */
+    DROP,
+    /** save the record synchronously in the request thread, as if there were no queue */
+    CALLER_RUNS
+}
@@ -0,0 +1,164 @@
+package com.example.asteriotest.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Daily RANGE partitions of the request_journal table on MySQL ("journal.storage.mode=MYSQL").
+ * Partition "pYYYYMMDD" holds the records of one day, "p_history" everything before the first daily partition
+ * and "p_future" everything after the last one, so an insert never fails because of a missing partition.
+ * A plain table is converted by the PARTITION_BY_DAY migration (see JournalMigration), it rewrites the whole table:
+ * MySQL requires the partitioning column in every unique key, so the primary key becomes (id, request_time),
+ * and foreign keys are not supported on partitioned tables. The application does not start on a table
+ * that is not partitioned yet.
+ * Expired days are removed by dropping their partitions, which does not touch the rows of other days.
+ * The bean exists in every storage mode and does nothing in the others: a property condition would be fixed
+ * at build time by Spring AOT (the fast-startup build).
+ * */
+@Component
+public class JournalPartitionManager {
+    private static final String TABLE = "request_journal";
+    private static final String HISTORY = "p_history";
+    private static final String FUTURE = "p_future";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+    private final int daysAhead;
+    private final boolean partitionRequested;
+    private final Logger logger = Logger.getLogger(JournalPartitionManager.class.getName());
+
+    // the EntityManagerFactory is only required so the table is created by Hibernate before it is partitioned
+    public JournalPartitionManager(JdbcTemplate jdbc, EntityManagerFactory entityManagerFactory,
+                                   @Value("${journal.storage.mode:NONE}") JournalStorageMode mode,
+                                   @Value("${journal.partitions.days-ahead:7}") int daysAhead,
+                                   @Value("${journal.migrate:}") List<JournalMigrationStep> migration) {
+        this.jdbc = jdbc;
+        this.enabled = mode == JournalStorageMode.MYSQL;
+        this.daysAhead = daysAhead;
+        this.partitionRequested = migration.contains(JournalMigrationStep.PARTITION_BY_DAY);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (isPartitioned()) {
+            createPartitionsAhead(LocalDate.now());
+        } else if (!partitionRequested) {
+            throw new IllegalStateException("journal.storage.mode=MYSQL but request_journal is not partitioned, " +
+                    "run the application once with --journal.migrate=PARTITION_BY_DAY");
+        }
+    }
+
+    /**
+     * Converts the plain table into daily partitions, see the class comment. Does nothing if it is partitioned already.
+     * */
+    public synchronized void partition(LocalDate today) {
+        if (!enabled) {
+            throw new IllegalStateException("journal.migrate=PARTITION_BY_DAY requires journal.storage.mode=MYSQL");
+        }
+        if (!isPartitioned()) {
+            partitionTable(today);
+        }
+        createPartitionsAhead(today);
+    }
+
+    /**
+     * Makes sure there is a daily partition for every day up to today + journal.partitions.days-ahead.
+     * */
+    public synchronized void createPartitionsAhead(LocalDate today) {
+        TreeMap<LocalDate, String> daily = dailyPartitions();
+        LocalDate from = daily.isEmpty() ? today : daily.lastKey().plusDays(1);
+        LocalDate until = today.plusDays(daysAhead);
+        if (from.isAfter(until)) {
+            return;
+        }
+
+        StringBuilder definitions = new StringBuilder();
+        for (LocalDate day = from; !day.isAfter(until); day = day.plusDays(1)) {
+            definitions.append(dayPartition(day)).append(", ");
+        }
+        definitions.append("PARTITION ").append(FUTURE).append(" VALUES LESS THAN MAXVALUE");
+        // p_future is empty unless the application was down for longer than days-ahead, then its rows are moved
+        jdbc.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + FUTURE + " INTO (" + definitions + ")");
+        logger.info("Request journal partitions created from " + from + " to " + until);
+    }
+
+    /**
+     * Drops the partitions that hold only records older than the given day.
+     * @return number of dropped partitions
+     * */
+    public synchronized int dropPartitionsBefore(LocalDate cutoff) {
+        TreeMap<LocalDate, String> daily = dailyPartitions();
+        List<String> expired = new ArrayList<>(daily.headMap(cutoff).values());
+        if (!daily.isEmpty() && !daily.firstKey().isAfter(cutoff) && hasPartition(HISTORY)) {
+            expired.add(HISTORY); // everything in it is older than the first daily partition
+        }
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        jdbc.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + String.join(", ", expired));
+        logger.info("Request journal partitions dropped: " + expired);
+        return expired.size();
+    }
+
+    private void partitionTable(LocalDate today) {
+        List<String> foreignKeys = jdbc.queryForList(
+                "SELECT constraint_name FROM information_schema.key_column_usage " +
+                        "WHERE table_schema = DATABASE() AND table_name = ? AND referenced_table_name IS NOT NULL",
+                String.class, TABLE);
+        for (String foreignKey : foreignKeys) {
+            jdbc.execute("ALTER TABLE " + TABLE + " DROP FOREIGN KEY " + foreignKey);
+        }
+
+        jdbc.execute("ALTER TABLE " + TABLE + " MODIFY request_time datetime(6) NOT NULL");
+        jdbc.execute("ALTER TABLE " + TABLE + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, request_time)");
+        jdbc.execute("ALTER TABLE " + TABLE + " PARTITION BY RANGE (TO_DAYS(request_time)) (" +
+                "PARTITION " + HISTORY + " VALUES LESS THAN (TO_DAYS('" + today + "')), " +
+                dayPartition(today) + ", " +
+                "PARTITION " + FUTURE + " VALUES LESS THAN MAXVALUE)");
+        logger.info("Request journal table partitioned by day, foreign keys dropped: " + foreignKeys);
+    }
+
+    private static String dayPartition(LocalDate day) {
+        return "PARTITION " + PARTITION_NAME.format(day) + " VALUES LESS THAN (TO_DAYS('" + day.plusDays(1) + "'))";
+    }
+
+    private boolean isPartitioned() {
+        return !partitionNames().isEmpty();
+    }
+
+    private boolean hasPartition(String name) {
+        return partitionNames().contains(name);
+    }
+
+    private TreeMap<LocalDate, String> dailyPartitions() {
+        TreeMap<LocalDate, String> daily = new TreeMap<>();
+        for (String name : partitionNames()) {
+            if (!name.equals(HISTORY) && !name.equals(FUTURE)) {
+                daily.put(LocalDate.parse(name, PARTITION_NAME), name);
+            }
+        }
+        return daily;
+    }
+
+    private List<String> partitionNames() {
+        return jdbc.queryForList(
+                "SELECT partition_name FROM information_schema.partitions " +
+                        "WHERE table_schema = DATABASE() AND table_name = ? AND partition_name IS NOT NULL",
+                String.class, TABLE);
+    }
+}
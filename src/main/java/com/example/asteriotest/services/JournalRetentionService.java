@@ -0,0 +1,189 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.DTO.JournalDayAggregate;
+import com.example.asteriotest.model.DTO.JournalRow;
+import com.example.asteriotest.model.JournalDailyRollup;
+import com.example.asteriotest.repository.JournalDailyRollupRepository;
+import com.example.asteriotest.repository.RequestJournalRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the request journal small.
+ * Every complete day is rolled up into journal_daily_rollup (impressions, revenue and errors per banner),
+ * then raw records older than journal.retention.days are removed according to journal.storage.mode:
+ * deleted in chunks, dropped as whole MySQL partitions or written to daily NDJSON files and deleted.
+ * A day is never removed before it is rolled up.
+ * */
+@Service
+public class JournalRetentionService {
+    // the frequency cap is restored from the last 25 hours of the journal on startup
+    private static final int MIN_RETENTION_DAYS = 2;
+
+    private final RequestJournalRepository journalRepo;
+    private final JournalDailyRollupRepository rollupRepo;
+    private final JournalPartitionManager partitionManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaction;
+    private final Logger logger = Logger.getLogger(JournalRetentionService.class.getName());
+
+    private final JournalStorageMode mode;
+    private final int retentionDays;
+    private final int chunkSize;
+    private final Path archiveDirectory;
+
+    public JournalRetentionService(RequestJournalRepository journalRepo,
+                                   JournalDailyRollupRepository rollupRepo,
+                                   JournalPartitionManager partitionManager,
+                                   ObjectMapper objectMapper,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${journal.storage.mode:NONE}") JournalStorageMode mode,
+                                   @Value("${journal.retention.days:30}") int retentionDays,
+                                   @Value("${journal.retention.delete-chunk-size:5000}") int chunkSize,
+                                   @Value("${journal.archive.directory:journal-archive}") String archiveDirectory) {
+        if (retentionDays < MIN_RETENTION_DAYS) {
+            throw new IllegalArgumentException("journal.retention.days must be at least " + MIN_RETENTION_DAYS);
+        }
+        this.journalRepo = journalRepo;
+        this.rollupRepo = rollupRepo;
+        this.partitionManager = partitionManager;
+        this.objectMapper = objectMapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.mode = mode;
+        this.retentionDays = retentionDays;
+        this.chunkSize = chunkSize;
+        this.archiveDirectory = Path.of(archiveDirectory);
+    }
+
+    @Scheduled(cron = "${journal.retention.cron:0 15 0 * * *}")
+    public void rollUpAndExpire() {
+        LocalDate today = LocalDate.now();
+        rollUp(today);
+        expire(today);
+    }
+
+    /**
+     * Rolls up every complete day that is not rolled up yet.
+     * @return number of processed days
+     * */
+    public int rollUp(LocalDate today) {
+        Optional<LocalDate> from = rollupRepo.findLastRolledUpDay().map(day -> day.plusDays(1))
+                .or(() -> journalRepo.findFirstRequestTime().map(LocalDateTime::toLocalDate));
+        if (from.isEmpty()) {
+            return 0;
+        }
+
+        int days = 0;
+        for (LocalDate day = from.get(); day.isBefore(today); day = day.plusDays(1)) {
+            LocalDate rolledDay = day;
+            transaction.executeWithoutResult(status -> rollUpDay(rolledDay));
+            days++;
+        }
+        return days;
+    }
+
+    private void rollUpDay(LocalDate day) {
+        if (rollupRepo.existsByDay(day)) {
+            return;
+        }
+        List<JournalDailyRollup> rollups = new ArrayList<>();
+        for (JournalDayAggregate aggregate : journalRepo.aggregateByBanner(day.atStartOfDay(), day.plusDays(1).atStartOfDay())) {
+            rollups.add(new JournalDailyRollup(aggregate.getBannerId(), day, aggregate.getImpressions(),
+                    aggregate.getRevenue() == null ? 0 : aggregate.getRevenue(), aggregate.getErrorCount()));
+        }
+        rollupRepo.saveAll(rollups);
+        logger.info("Request journal of " + day + " rolled up, banners: " + rollups.size());
+    }
+
+    /**
+     * Removes raw records of the days that are older than the retention period.
+     * */
+    public void expire(LocalDate today) {
+        LocalDate cutoff = today.minusDays(retentionDays);
+        switch (mode) {
+            case NONE -> logger.info("Expired request journal records deleted: " + deleteBefore(cutoff));
+            case FILE -> logger.info("Expired request journal records archived: " + archiveBefore(cutoff));
+            case MYSQL -> {
+                partitionManager.dropPartitionsBefore(cutoff);
+                partitionManager.createPartitionsAhead(today);
+            }
+        }
+    }
+
+    private long deleteBefore(LocalDate cutoff) {
+        long deleted = 0;
+        while (true) {
+            List<Long> ids = journalRepo.findIdsBefore(cutoff.atStartOfDay(), Pageable.ofSize(chunkSize));
+            if (ids.isEmpty()) {
+                return deleted;
+            }
+            transaction.executeWithoutResult(status -> journalRepo.deleteAllByIdInBatch(ids));
+            deleted += ids.size();
+        }
+    }
+
+    // a chunk is appended to the files before it is deleted, a failure in between may archive it twice
+    private long archiveBefore(LocalDate cutoff) {
+        long archived = 0;
+        while (true) {
+            List<JournalRow> rows = journalRepo.findRowsBefore(cutoff.atStartOfDay(), Pageable.ofSize(chunkSize));
+            if (rows.isEmpty()) {
+                return archived;
+            }
+            appendToArchive(rows);
+            List<Long> ids = rows.stream().map(JournalRow::getId).toList();
+            transaction.executeWithoutResult(status -> journalRepo.deleteAllByIdInBatch(ids));
+            archived += ids.size();
+        }
+    }
+
+    private void appendToArchive(List<JournalRow> rows) {
+        Map<LocalDate, List<JournalRow>> byDay = new TreeMap<>();
+        for (JournalRow row : rows) {
+            byDay.computeIfAbsent(row.getRequestTime().toLocalDate(), day -> new ArrayList<>()).add(row);
+        }
+
+        try {
+            Files.createDirectories(archiveDirectory);
+            for (Map.Entry<LocalDate, List<JournalRow>> day : byDay.entrySet()) {
+                Path file = archiveDirectory.resolve("request_journal-" + day.getKey() + ".ndjson");
+                try (BufferedWriter writer = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (JournalRow row : day.getValue()) {
+                        writer.write(objectMapper.writeValueAsString(toMap(row)));
+                        writer.newLine();
+                    }
+                }
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException("Failed to archive the request journal to " + archiveDirectory, exc);
+        }
+    }
+
+    private static Map<String, Object> toMap(JournalRow row) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("id", row.getId());
+        values.put("ipAddress", IpAddresses.toString(row.getIp()));
+        values.put("userAgent", row.getUserAgent());
+        values.put("requestTime", row.getRequestTime());
+        values.put("bannerId", row.getBannerId());
+        values.put("bannerPrice", row.getBannerPrice());
+        values.put("errorMessage", row.getErrorCode() == null ? null : row.getErrorCode().getMessage());
+        return values;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.asteriotest.services;
+
+/**
+ * How expired request journal records are removed.
+ * */
+public enum JournalStorageMode {
+    /** one table, expired rows are deleted in chunks */
+    NONE,
+    /** MySQL table partitioned by day, expired days are dropped as whole partitions */
+    MYSQL,
+    /** expired rows are written to daily NDJSON files and deleted, for local testing */
+    FILE
+}
@@ -0,0 +1,238 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.RequestJournal;
+import com.example.asteriotest.repository.RequestJournalRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes request journal records in the background.
+ * The request thread only puts a record into a bounded queue,
+ * a single writer thread drains the queue and saves the records in batches
+ * (one transaction and one JDBC batch per batch, see hibernate.jdbc.batch_size).
+ * A batch is written when it is full or when the flush interval has passed since its first record.
+ * The User-Agent strings of a batch are replaced with their dictionary ids right before it is saved (see UserAgentDictionary).
+ * On shutdown the queue is drained before the application context is closed. The check of the state and the enqueue
+ * of a write happen under the read lock, stop() changes the state under the write lock: a record is either in the queue
+ * before the final drain or, once the writer is stopped, saved right away. It is never left in the queue.
+ * */
+@Component
+public class JournalWriter {
+    private final RequestJournalRepository journalRepo;
+    private final UserAgentDictionary userAgents;
+    private final DatabaseAccessLimiter databaseLimiter;
+    private final Logger logger = Logger.getLogger(JournalWriter.class.getName());
+
+    private final BlockingQueue<RequestJournal> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long shutdownTimeoutMs;
+    private final JournalOverflowPolicy overflowPolicy;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    // guards the transition of running to false against concurrent enqueues, see stop()
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public JournalWriter(RequestJournalRepository journalRepo, UserAgentDictionary userAgents, DatabaseAccessLimiter databaseLimiter,
+                         @Value("${journal.writer.queue-capacity:10000}") int queueCapacity,
+                         @Value("${journal.writer.batch-size:500}") int batchSize,
+                         @Value("${journal.writer.flush-interval-ms:200}") long flushIntervalMs,
+                         @Value("${journal.writer.shutdown-timeout-ms:10000}") long shutdownTimeoutMs,
+                         @Value("${journal.writer.overflow-policy:CALLER_RUNS}") JournalOverflowPolicy overflowPolicy) {
+        this.journalRepo = journalRepo;
+        this.userAgents = userAgents;
+        this.databaseLimiter = databaseLimiter;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::run, "journal-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues the record for writing. If the queue is full, the configured overflow policy is applied.
+     * */
+    public void write(RequestJournal record) {
+        Lock accepting = stateLock.readLock();
+        accepting.lock();
+        try {
+            if (running) {
+                if (!queue.offer(record)) {
+                    overflow(List.of(record));
+                }
+                return;
+            }
+        } finally {
+            accepting.unlock();
+        }
+        saveNow(List.of(record)); // the writer is stopped, nothing will drain the queue
+    }
+
+    /**
+     * Queues the records of several requests at once. The records that do not fit into the queue
+     * are handled by the overflow policy together, CALLER_RUNS saves them as one batch.
+     * */
+    public void writeAll(List<RequestJournal> records) {
+        Lock accepting = stateLock.readLock();
+        accepting.lock();
+        try {
+            if (running) {
+                int queued = 0;
+                while (queued < records.size() && queue.offer(records.get(queued))) {
+                    queued++;
+                }
+                if (queued < records.size()) {
+                    overflow(records.subList(queued, records.size()));
+                }
+                return;
+            }
+        } finally {
+            accepting.unlock();
+        }
+        saveNow(records);
+    }
+
+    private void overflow(List<RequestJournal> records) {
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                int queued = 0;
+                try {
+                    for (; queued < records.size(); queued++) {
+                        queue.put(records.get(queued));
+                    }
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                    dropped.addAndGet(records.size() - queued);
+                }
+            }
+            case DROP -> dropped.addAndGet(records.size());
+            case CALLER_RUNS -> saveNow(records);
+        }
+    }
+
+    /**
+     * True if the next write() may block the caller: the queue is full and the overflow policy is not DROP.
+     * */
+    public boolean isSaturated() {
+        return overflowPolicy != JournalOverflowPolicy.DROP && queue.remainingCapacity() == 0;
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    public long writtenCount() {
+        return written.get();
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    public long failedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Stops accepting work in the background and writes everything that is still queued.
+     * Waits for the writes in progress, the later ones are saved by their callers.
+     * */
+    @PreDestroy
+    public void stop() {
+        // a write blocked in queue.put() (BLOCK) holds the read lock, the writer thread is still running and makes room
+        Lock stopping = stateLock.writeLock();
+        stopping.lock();
+        try {
+            running = false; // the writer thread notices it within one flush interval and finishes its current batch
+        } finally {
+            stopping.unlock();
+        }
+        try {
+            writerThread.join(shutdownTimeoutMs);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<RequestJournal> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (int from = 0; from < rest.size(); from += batchSize) {
+            saveNow(rest.subList(from, Math.min(from + batchSize, rest.size())));
+        }
+        logger.info("Journal writer stopped, records written: " + written.get() + ", dropped: " + dropped.get() + ", failed: " + failed.get());
+    }
+
+    private void run() {
+        List<RequestJournal> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                RequestJournal first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    RequestJournal next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                saveNow(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void saveNow(List<RequestJournal> batch) {
+        try {
+            databaseLimiter.run(() -> {
+                userAgents.assignIds(batch);
+                journalRepo.saveAll(batch);
+            });
+            written.addAndGet(batch.size());
+        } catch (RuntimeException exc) {
+            failed.addAndGet(batch.size());
+            logger.log(Level.SEVERE, "Failed to write " + batch.size() + " request journal records", exc);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.asteriotest.services;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index of short texts (names), searched by a part of the text, not case sensitive.
+ * Every entry is an id with one or more keys (e.g. the name and the requestId of a category).
+ * Entries are numbered internally with dense ints (the slot of a removed entry is reused),
+ * for every trigram of a key the index keeps a sorted int array of the entries whose keys contain it,
+ * a query intersects the arrays of its trigrams, so only the entries that contain all of them are checked.
+ * Keys are indexed with two leading start marks, so a prefix query of any length is also a trigram lookup.
+ * Substring queries shorter than 3 characters have no trigrams of their own, they check the keys of all entries.
+ * <p>
+ * Results are ranked: exact match, then prefix, then a match at the start of a word, then any other match;
+ * within a rank shorter keys first, then lower ids.
+ * Thread safe, searches run in parallel, changes take an exclusive lock.
+ * */
+class NameSearchIndex {
+    private static final char START = '\u0002';
+    private static final int EXACT = 0;
+    private static final int PREFIX = 1;
+    private static final int WORD_START = 2;
+    private static final int SUBSTRING = 3;
+
+    private final Map<Long, Integer> docById = new HashMap<>();
+    private long[] ids = new long[16];
+    private String[][] keys = new String[16][];
+    private int docCount;
+    private final Deque<Integer> freeDocs = new ArrayDeque<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Adds the entry or replaces the keys of an existing one. Null keys are skipped.
+     * */
+    void put(long id, String... texts) {
+        String[] normalized = Arrays.stream(texts).filter(Objects::nonNull).map(NameSearchIndex::normalize).toArray(String[]::new);
+        lock.writeLock().lock();
+        try {
+            Integer existing = docById.get(id);
+            int doc;
+            if (existing != null) {
+                doc = existing;
+                unlink(doc);
+            } else {
+                doc = newDoc();
+                docById.put(id, doc);
+                ids[doc] = id;
+            }
+            keys[doc] = normalized;
+            for (long trigram : trigrams(normalized)) {
+                postings.computeIfAbsent(trigram, key -> new Postings()).add(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docById.remove(id);
+            if (doc == null) {
+                return;
+            }
+            unlink(doc);
+            keys[doc] = null;
+            freeDocs.push(doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            docById.clear();
+            ids = new long[16];
+            keys = new String[16][];
+            docCount = 0;
+            freeDocs.clear();
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return docById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of at most "limit" entries with a key that contains the query (or starts with it, if prefixOnly), best first.
+     * */
+    List<Long> search(String query, boolean prefixOnly, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        boolean scan = !prefixOnly && normalized.length() < 3;
+        Set<Long> queryTrigrams = new HashSet<>();
+        if (!scan) {
+            addTrigrams(prefixOnly ? START + "" + START + normalized : normalized, queryTrigrams);
+        }
+
+        // the worst of the best "limit" matches is on top, so it is the one replaced by a better match
+        PriorityQueue<Match> best = new PriorityQueue<>(Comparator.reverseOrder());
+        lock.readLock().lock();
+        try {
+            int[] candidates = scan ? liveDocs() : intersect(queryTrigrams);
+            for (int doc : candidates) {
+                int score = score(keys[doc], normalized, prefixOnly);
+                if (score < 0) {
+                    continue; // has all the trigrams, but not in one key or not next to each other
+                }
+                if (best.size() < limit) {
+                    best.add(new Match(ids[doc], score));
+                } else if (best.peek().isWorseThan(score, ids[doc])) { // no garbage for the matches that are not kept
+                    best.poll();
+                    best.add(new Match(ids[doc], score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Match[] sorted = best.toArray(new Match[0]);
+        Arrays.sort(sorted);
+        List<Long> found = new ArrayList<>(sorted.length);
+        for (Match match : sorted) {
+            found.add(match.id);
+        }
+        return found;
+    }
+
+    private int newDoc() {
+        if (!freeDocs.isEmpty()) {
+            return freeDocs.pop();
+        }
+        if (docCount == ids.length) {
+            ids = Arrays.copyOf(ids, docCount * 2);
+            keys = Arrays.copyOf(keys, docCount * 2);
+        }
+        return docCount++;
+    }
+
+    private void unlink(int doc) {
+        for (long trigram : trigrams(keys[doc])) {
+            Postings docs = postings.get(trigram);
+            if (docs.remove(doc) && docs.isEmpty()) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    private int[] liveDocs() {
+        int[] docs = new int[docById.size()];
+        int size = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (keys[doc] != null) {
+                docs[size++] = doc;
+            }
+        }
+        return docs;
+    }
+
+    private int[] intersect(Set<Long> queryTrigrams) {
+        List<Postings> lists = new ArrayList<>(queryTrigrams.size());
+        for (long trigram : queryTrigrams) {
+            Postings docs = postings.get(trigram);
+            if (docs == null) {
+                return new int[0];
+            }
+            lists.add(docs);
+        }
+        lists.sort(Comparator.comparingInt(docs -> docs.size));
+
+        Postings smallest = lists.get(0);
+        int[] result = Arrays.copyOf(smallest.docs, smallest.size);
+        int size = result.length;
+        // once a few candidates are left, checking them is cheaper than walking the remaining long lists
+        for (int i = 1; i < lists.size() && size > 64; i++) {
+            Postings other = lists.get(i);
+            int kept = 0;
+            if (other.size / 16 > size) { // a few docs against a long list: binary search
+                for (int j = 0; j < size; j++) {
+                    if (other.contains(result[j])) {
+                        result[kept++] = result[j];
+                    }
+                }
+            } else { // lists of similar length: one pass over both
+                for (int j = 0, k = 0; j < size && k < other.size; ) {
+                    if (result[j] < other.docs[k]) {
+                        j++;
+                    } else if (result[j] > other.docs[k]) {
+                        k++;
+                    } else {
+                        result[kept++] = result[j++];
+                        k++;
+                    }
+                }
+            }
+            size = kept;
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Rank and length of the best matching key in one number, lower is better, or -1 if no key matches.
+     * */
+    private static int score(String[] keys, String query, boolean prefixOnly) {
+        int best = -1;
+        for (String key : keys) {
+            int rank;
+            int at = prefixOnly ? (key.startsWith(query) ? 0 : -1) : key.indexOf(query);
+            if (at < 0) {
+                continue;
+            } else if (at == 0) {
+                rank = key.length() == query.length() ? EXACT : PREFIX;
+            } else {
+                rank = Character.isLetterOrDigit(key.charAt(at - 1)) ? SUBSTRING : WORD_START;
+            }
+            int score = (rank << 24) | Math.min(key.length(), 0xFFFFFF);
+            if (best < 0 || score < best) {
+                best = score;
+            }
+        }
+        return best;
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<Long> trigrams(String[] keys) {
+        Set<Long> trigrams = new HashSet<>();
+        for (String key : keys) {
+            addTrigrams(START + "" + START + key, trigrams);
+        }
+        return trigrams;
+    }
+
+    private static void addTrigrams(String text, Set<Long> trigrams) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+    }
+
+    private record Match(long id, int score) implements Comparable<Match> {
+        boolean isWorseThan(int otherScore, long otherId) {
+            return score != otherScore ? score > otherScore : id > otherId;
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            return score != other.score ? Integer.compare(score, other.score) : Long.compare(id, other.id);
+        }
+    }
+
+    /**
+     * Sorted entry numbers without boxing. New entries get growing numbers, so adding is usually an append.
+     * */
+    private static final class Postings {
+        private int[] docs = new int[2];
+        private int size;
+
+        void add(int doc) {
+            int at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            System.arraycopy(docs, at, docs, at + 1, size - at);
+            docs[at] = doc;
+            size++;
+        }
+
+        boolean remove(int doc) {
+            int at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(docs, at + 1, docs, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(int doc) {
+            return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.DTO.BannerCandidate;
+import com.example.asteriotest.model.DTO.BidResult;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The same bid as BannerManagerService.bid(), composed of non-blocking stages:
+ * candidate lookup, frequency cap check and journal write.
+ * The stages that may block (the DATABASE selection query, a journal write into a full queue)
+ * are moved to the bounded elastic scheduler, everything else runs on the calling thread.
+ * The result is the same BidResult as in the blocking version.
+ * */
+@Service
+public class ReactiveBidService {
+    private final BannerManagerService bannerManagerService;
+    private final JournalWriter journalWriter;
+
+    public ReactiveBidService(BannerManagerService bannerManagerService, JournalWriter journalWriter) {
+        this.bannerManagerService = bannerManagerService;
+        this.journalWriter = journalWriter;
+    }
+
+    public Mono<BidResult> bid(String ip, String userAgent, List<String> categories) {
+        return Mono.fromSupplier(() -> bannerManagerService.findCandidates(categories))
+                .flatMap(banners -> banners.length == 0
+                        ? complete(ip, userAgent, false, null)
+                        : select(banners, categories, ip, userAgent)
+                            .flatMap(finalBanner -> complete(ip, userAgent, true, finalBanner.orElse(null))));
+    }
+
+    private Mono<Optional<BannerCandidate>> select(BannerCandidate[] banners, List<String> categories, String ip, String userAgent) {
+        Mono<Optional<BannerCandidate>> selection = Mono.fromSupplier(() ->
+                Optional.ofNullable(bannerManagerService.selectUnseen(banners, categories, ip, userAgent)));
+        return bannerManagerService.usesDatabaseForSelection()
+                ? selection.subscribeOn(Schedulers.boundedElastic())
+                : selection;
+    }
+
+    private Mono<BidResult> complete(String ip, String userAgent, boolean hadCandidates, BannerCandidate finalBanner) {
+        Mono<BidResult> completion = Mono.fromCallable(() ->
+                bannerManagerService.completeBid(ip, userAgent, hadCandidates, finalBanner));
+        return journalWriter.isSaturated()
+                ? completion.subscribeOn(Schedulers.boundedElastic())
+                : completion;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.RequestJournal;
+import com.example.asteriotest.model.UserAgent;
+import com.example.asteriotest.repository.UserAgentRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Ids of the User-Agent strings in the user_agent table, see UserAgent.
+ * The ids of recently seen strings are cached, a miss reads the table by digest and inserts the string if it is new.
+ * The loading of one string runs once even if many requests with it arrive together.
+ * Only the journal writer inserts (see JournalWriter), the bid path uses find(), which never writes.
+ * If another application instance inserts the same string at the same time, the unique digest rejects
+ * one of the inserts and its id is read back.
+ * */
+@Component
+public class UserAgentDictionary {
+    /** Id returned by find() for a string that is not in the dictionary, no journal record has it */
+    public static final int UNKNOWN = -1;
+
+    private final UserAgentRepository userAgentRepo;
+    private final TransactionTemplate newTransaction;
+    private final Cache<String, Integer> ids;
+
+    public UserAgentDictionary(UserAgentRepository userAgentRepo, PlatformTransactionManager transactionManager,
+                               @Value("${journal.user-agent.cache-size:100000}") long cacheSize) {
+        this.userAgentRepo = userAgentRepo;
+        // the insert is committed on its own, a rolled back caller must not leave other callers with a missing id
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ids = Caffeine.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    /**
+     * @return the id of the string, null for null
+     * */
+    public Integer idOf(String userAgent) {
+        if (userAgent == null) {
+            return null;
+        }
+        return ids.get(userAgent, this::load);
+    }
+
+    /**
+     * The id of the string without inserting it. A string that is not in the dictionary has no journal records yet,
+     * the writer inserts it before the first one. A missing string is not cached, it is added within a flush interval.
+     * @return the id, null for null, UNKNOWN for a string that is not in the dictionary
+     * */
+    public Integer find(String userAgent) {
+        if (userAgent == null) {
+            return null;
+        }
+        Integer id = ids.getIfPresent(userAgent);
+        if (id != null) {
+            return id;
+        }
+        Optional<Integer> found = userAgentRepo.findIdByDigest(digest(stored(userAgent)));
+        found.ifPresent(value -> ids.put(userAgent, value));
+        return found.orElse(UNKNOWN);
+    }
+
+    /**
+     * Sets the User-Agent id of the records that do not have it yet.
+     * */
+    public void assignIds(List<RequestJournal> records) {
+        for (RequestJournal record : records) {
+            if (record.getUserAgentId() == null && record.getUserAgent() != null) {
+                record.setUserAgentId(idOf(record.getUserAgent()));
+            }
+        }
+    }
+
+    private Integer load(String userAgent) {
+        String stored = stored(userAgent);
+        byte[] digest = digest(stored);
+        return userAgentRepo.findIdByDigest(digest).orElseGet(() -> insert(stored, digest));
+    }
+
+    private Integer insert(String userAgent, byte[] digest) {
+        try {
+            return newTransaction.execute(status -> userAgentRepo.save(new UserAgent(digest, userAgent)).getId());
+        } catch (DataIntegrityViolationException exc) { // inserted by another instance in the meantime
+            return userAgentRepo.findIdByDigest(digest).orElseThrow(() -> exc);
+        }
+    }
+
+    /**
+     * The User-Agent as it is kept in the dictionary, the frequency cap keys users by the same form.
+     * */
+    static String stored(String userAgent) {
+        return userAgent.length() > UserAgent.MAX_LENGTH ? userAgent.substring(0, UserAgent.MAX_LENGTH) : userAgent;
+    }
+
+    private static byte[] digest(String userAgent) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(userAgent.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException exc) { // every JVM has SHA-256
+            throw new IllegalStateException(exc);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.asteriotest.services;
+
+import com.example.asteriotest.model.DTO.BannerCandidate;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Price-weighted rotation among the most expensive candidates of a request (bid.rotation=WEIGHTED).
+ * For every candidates array of the catalog (one per category or set of categories, sorted by price)
+ * a Walker alias table of its first bid.rotation.top-bidders candidates is built once,
+ * then every draw takes constant time whatever the number of candidates.
+ * The catalog replaces the arrays of changed categories on a rebuild, so the tables are keyed by the array identity
+ * and held by weak references: the table of a replaced array is dropped together with it.
+ * */
+@Component
+public class WeightedRotation {
+    private final boolean enabled;
+    private final int topBidders;
+    private final Cache<BannerCandidate[], AliasTable> tables;
+
+    public WeightedRotation(@Value("${bid.rotation:HIGHEST_PRICE}") BidRotation rotation,
+                            @Value("${bid.rotation.top-bidders:10}") int topBidders) {
+        if (topBidders < 1) {
+            throw new IllegalArgumentException("bid.rotation.top-bidders must be positive");
+        }
+        this.enabled = rotation == BidRotation.WEIGHTED;
+        this.topBidders = topBidders;
+        this.tables = Caffeine.newBuilder()
+                .weakKeys() // identity comparison of the arrays
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Builds the table of a new candidates array in advance, so the first request does not pay for it.
+     * */
+    void precompute(BannerCandidate[] candidates) {
+        if (enabled && candidates.length > 1) {
+            tables.get(candidates, this::build);
+        }
+    }
+
+    /**
+     * The table of the most expensive candidates of the array, built on first use if it was not precomputed.
+     * */
+    AliasTable tableOf(BannerCandidate[] candidates) {
+        return tables.get(candidates, this::build);
+    }
+
+    private AliasTable build(BannerCandidate[] candidates) {
+        return new AliasTable(candidates, Math.min(topBidders, candidates.length));
+    }
+
+    /**
+     * Walker alias table (Vose's construction): column i is taken with equal probability,
+     * then either i itself with probability[i] or alias[i], which gives every candidate a probability
+     * proportional to its price. Immutable once built.
+     * */
+    static final class AliasTable {
+        private final double[] probability;
+        private final int[] alias;
+
+        AliasTable(BannerCandidate[] candidates, int size) {
+            probability = new double[size];
+            alias = new int[size];
+
+            double total = 0;
+            for (int i = 0; i < size; i++) {
+                total += Math.max(0, candidates[i].getPrice());
+            }
+            // weights scaled so that their average is 1, equal weights if all prices are zero
+            double[] scaled = new double[size];
+            for (int i = 0; i < size; i++) {
+                scaled[i] = total > 0 ? Math.max(0, candidates[i].getPrice()) * size / total : 1;
+            }
+
+            int[] small = new int[size];
+            int[] large = new int[size];
+            int smallCount = 0;
+            int largeCount = 0;
+            for (int i = 0; i < size; i++) {
+                if (scaled[i] < 1) {
+                    small[smallCount++] = i;
+                } else {
+                    large[largeCount++] = i;
+                }
+            }
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+                probability[less] = scaled[less];
+                alias[less] = more; // the rest of the column goes to a heavier candidate
+                scaled[more] += scaled[less] - 1;
+                if (scaled[more] < 1) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+            // the remaining columns are full, up to rounding errors
+            while (largeCount > 0) {
+                probability[large[--largeCount]] = 1;
+            }
+            while (smallCount > 0) {
+                probability[small[--smallCount]] = 1;
+            }
+        }
+
+        /** Number of candidates in the table, the first ones of the array */
+        int size() {
+            return probability.length;
+        }
+
+        /** Index of a random candidate, a more expensive one more often */
+        int sample() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int column = random.nextInt(probability.length);
+            return random.nextDouble() < probability[column] ? column : alias[column];
+        }
+    }
+}